@@ -0,0 +1,22 @@
+package io.github.qwefgh90.jsearch;
+
+import java.io.IOException;
+
+/**
+ * A writer which receives extracted text throws this exception
+ * when it doesn't need more text. <br>
+ * An extraction is stopped in the middle and callers can catch it as a normal end.
+ * 
+ * @author cheochangwon
+ */
+public class ExtractionStoppedException extends IOException {
+	private static final long serialVersionUID = 1L;
+
+	public ExtractionStoppedException() {
+		super("Extraction was stopped by a writer.");
+	}
+
+	public ExtractionStoppedException(String message) {
+		super(message);
+	}
+}
@@ -5,10 +5,13 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.regex.Pattern;
 
 import org.apache.poi.hwpf.model.io.HWPFOutputStream;
 import org.apache.tika.exception.TikaException;
@@ -19,17 +22,29 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
 
+import io.github.qwefgh90.jsearch.algorithm.ApproximateQS;
+import io.github.qwefgh90.jsearch.algorithm.ApproximateQSWriter;
 import io.github.qwefgh90.jsearch.algorithm.QS;
+import io.github.qwefgh90.jsearch.algorithm.QSWriter;
+import io.github.qwefgh90.jsearch.algorithm.RegexWriter;
+import io.github.qwefgh90.jsearch.extractor.DefaultExtractors;
+import io.github.qwefgh90.jsearch.extractor.DocumentMetadata;
+import io.github.qwefgh90.jsearch.extractor.Extractor;
+import io.github.qwefgh90.jsearch.extractor.ExtractorRegistry;
+import io.github.qwefgh90.jsearch.extractor.MetadataExtractor;
+import io.github.qwefgh90.jsearch.extractor.PdfTextExtractor;
 import io.github.qwefgh90.jsearch.extractor.PlainTextExtractor;
 import io.github.qwefgh90.jsearch.extractor.TikaTextExtractor;
-import io.github.qwefgh90.jsearch.extractor.hwp.HwpTextExtractorWrapper;
 
 /**
  * JSearch supports various types of documents with open source engines. <br>
  * And this library contains 3 types of functions. extract...() and
  * isContainsKeyword...() and getFileList...() <br>
+ * extractMetadataFromFile() reads metadata only, to filter files before extracting body. <br>
  * <br>
- * HWP, DOC, PPT, EXCEL, TEXT, PDF and UNKNOWN are supported.
+ * HWP, HWPX, DOC, PPT, EXCEL, TEXT, PDF and UNKNOWN are supported. <br>
+ * Entries of ZIP, 7z and tar (including HWP in them) are extracted in memory. <br>
+ * A type is routed to an extractor with {@link ExtractorRegistry}. Register a custom {@link Extractor} to replace one.
  * 
  * @author cheochangwon
  */
@@ -71,28 +86,122 @@ public class JSearch {
 
 		if(target.isFile() == false)
 			throw new RuntimeException("The path which you input isn't File.");
+		return extractContentsFromFile(target, getContentType(target, target.getName()));
+	}
+
+	/**
+	 * Extract string from file to writer incrementally. <br>
+	 * If writer throws {@link ExtractionStoppedException}, extraction is stopped and it is thrown.
+	 * 
+	 * @param target a file object where you want to extract string
+	 * @param writer a destination of string
+	 * @throws IOException a problem of file. refer to a message
+	 * @throws NullPointerException if target is null, throw it
+	 * @throws RuntimeException if file object isn't normal file, throw it
+	 * @throws IllegalStateException when parsing error occurs in tika, throw it
+	 */
+	public static void extractContentsFromFile(File target, Writer writer) throws IOException
+	{
+		if(target == null)
+			throw new NullPointerException("Please input file name.");
+
+		if(target.isFile() == false)
+			throw new RuntimeException("The path which you input isn't File.");
+		extractContentsFromFile(target, getContentType(target, target.getName()), writer);
+	}
+
+	private static void extractContentsFromFile(File target, MediaType mime, Writer writer) throws IOException
+	{
+		Extractor extractor = ExtractorRegistry.getDefault().getExtractor(mime);
+		LOG.debug("mime: "+ target.getName() + ", " + mime.toString() + ", " + extractor.getClass().getName());
+		extractor.extract(target, mime, writer);
+	}
+
+	private static String extractContentsFromFile(File target, MediaType mime) throws IOException
+	{
+		StringWriter writer = new StringWriter();
+		extractContentsFromFile(target, mime, writer);
+		return writer.toString();
+	}
+
+	private static void searchContentsFromFile(File target, Writer writer) throws IOException
+	{
+		if(target == null)
+			throw new NullPointerException("Please input file name.");
+
+		if(target.isFile() == false)
+			throw new RuntimeException("The path which you input isn't File.");
+		MediaType mime = getContentType(target, target.getName());
+		searchContentsFromFile(target, mime, ExtractorRegistry.getDefault().getExtractor(mime), writer);
+	}
+
+	/**
+	 * Extract text to a writer which searches it and stops extraction at a match. <br>
+	 * If an extractor isn't streaming, whole text is extracted before it is written to writer.
+	 */
+	private static void searchContentsFromFile(File target, MediaType mime, Extractor extractor, Writer writer)
+			throws IOException
+	{
+		LOG.debug("mime: "+ target.getName() + ", " + mime.toString() + ", " + extractor.getClass().getName());
+		try {
+			if(extractor.isStreaming()){
+				extractor.extract(target, mime, writer);
+			}else{
+				StringWriter text = new StringWriter();
+				extractor.extract(target, mime, text);
+				writer.write(text.toString());
+			}
+			writer.close();
+		} catch (ExtractionStoppedException e) {
+			// found
+		}
+	}
+
+	/**
+	 * Extract metadata (title, author, dates...) from file without extracting body text. <br>
+	 * HWP reads FileHeader and summary information only. Other documents are parsed by tika with discarding body. <br>
+	 * A type is routed with {@link ExtractorRegistry}. If its extractor isn't a {@link MetadataExtractor}, tika is used.
+	 *
+	 * @param target a file object where you want to extract metadata
+	 * @return DocumentMetadata metadata of document. properties which document doesn't have are null
+	 * @throws IOException a problem of file. refer to a message
+	 * @throws NullPointerException if target is null, throw it
+	 * @throws RuntimeException if file object isn't normal file, throw it
+	 * @throws IllegalStateException when parsing error occurs in tika, throw it
+	 */
+	public static DocumentMetadata extractMetadataFromFile(File target) throws IOException
+	{
+		if(target == null)
+			throw new NullPointerException("Please input file name.");
+
+		if(target.isFile() == false)
+			throw new RuntimeException("The path which you input isn't File.");
+
 		MediaType mime = getContentType(target, target.getName());
-		LOG.debug("mime: "+ target.getName() + ", " + mime.toString() );
+		Extractor extractor = ExtractorRegistry.getDefault().getExtractor(mime);
+		LOG.debug("mime: "+ target.getName() + ", " + mime.toString() + ", " + extractor.getClass().getName());
 		String mimeString = mime.toString();
-		if(mimeString.equals("application/x-hwp") || mimeString.equals("application/x-hwp-v5")){
-			HwpTextExtractorWrapper ext = new HwpTextExtractorWrapper();
-			ext.extract(target);
-			return ext.getText();
-		}else if(mimeString.equals("text/plain")){
-			return PlainTextExtractor.extract(target);
+		DocumentMetadata metadata;
+		if(extractor instanceof MetadataExtractor){
+			metadata = ((MetadataExtractor) extractor).extractMetadata(target, mime);
 		}else{
 			try {
-				return TikaTextExtractor.extract(target);
+				metadata = TikaTextExtractor.extractMetadata(target, mime);
 			} catch (SAXException | TikaException e) {
 				LOG.error(e.toString());
 				throw new IllegalStateException(e);
 			}
 		}
+
+		if(metadata == null)
+			metadata = new DocumentMetadata();
+		metadata.setContentType(mimeString);
+		return metadata;
 	}
 
 	/**
 	 * Get true or false about containing keyword.
-	 * 
+	 *
 	 * @param filePath a path string you want
 	 * @param keyword a thing you want to find
 	 * @return boolean whether or not to include keyword
@@ -100,13 +209,16 @@ public class JSearch {
 	 */
 	public static boolean isContainsKeywordFromFile(String filePath, String keyword)
 			throws IOException{
-		String text = extractContentsFromFile(filePath);
-		QS qs = QS.compile(keyword);
-		return qs.isExist(text);
+		if (filePath == null)
+			throw new NullPointerException("Please input file name.");
+
+		return isContainsKeywordFromFile(new File(filePath), keyword);
 	}
 
 	/**
-	 * Get true or false about containing keyword.
+	 * Get true or false about containing keyword. <br>
+	 * Plain text files are searched in bytes without decoding. Other documents are searched while text is extracted,
+	 * and extraction stops at a first match.
 	 * 
 	 * @param file a file object Document you want
 	 * @param keyword a thing you want to find
@@ -114,72 +226,214 @@ public class JSearch {
 	 * @throws IOException a problem of file. refer to a message
 	 */
 	public static boolean isContainsKeywordFromFile(File file, String keyword) throws IOException{
-		String text = extractContentsFromFile(file);
-		QS qs = QS.compile(keyword);
-		return qs.isExist(text);
+		if(file == null)
+			throw new NullPointerException("Please input file name.");
+
+		if(file.isFile() == false)
+			throw new RuntimeException("The path which you input isn't File.");
+		MediaType mime = getContentType(file, file.getName());
+		Extractor extractor = ExtractorRegistry.getDefault().getExtractor(mime);
+		if(extractor instanceof DefaultExtractors.PlainText)
+			return PlainTextExtractor.isContainsKeyword(file, keyword);
+
+		QSWriter writer = new QSWriter(QS.compile(keyword), true);
+		searchContentsFromFile(file, mime, extractor, writer);
+		return writer.isFound();
+	}
+	
+	/**
+	 * Get true or false about containing keyword with matching flags. <br>
+	 * Flags are {@link QS#CASE_INSENSITIVE} and {@link QS#NORMALIZE}.
+	 * 
+	 * @param file a file object Document you want
+	 * @param keyword a thing you want to find
+	 * @param flags a bit mask of QS flags
+	 * @return boolean whether or not to include keyword
+	 * @throws IOException a problem of file. refer to a message
+	 */
+	public static boolean isContainsKeywordFromFile(File file, String keyword, int flags) throws IOException{
+		if(flags == 0)
+			return isContainsKeywordFromFile(file, keyword);
+		if(file == null)
+			throw new NullPointerException("Please input file name.");
+
+		if(file.isFile() == false)
+			throw new RuntimeException("The path which you input isn't File.");
+		MediaType mime = getContentType(file, file.getName());
+		QSWriter writer = new QSWriter(QS.compile(keyword, flags), true);
+		searchContentsFromFile(file, mime, ExtractorRegistry.getDefault().getExtractor(mime), writer);
+		return writer.isFound();
+	}
+
+	/**
+	 * Get page numbers of PDF which are containing keyword. <br>
+	 * Pages are searched in parallel. A keyword across pages isn't found.
+	 * 
+	 * @param file a pdf file
+	 * @param keyword a thing you want to find
+	 * @param flags a bit mask of QS flags. 0 if there is no flag
+	 * @return page numbers (1-based) in order
+	 * @throws IOException a problem of file. refer to a message
+	 * @throws IllegalArgumentException if file isn't PDF
+	 */
+	public static List<Integer> getPageListContainsKeywordFromPdf(File file, String keyword, int flags) throws IOException{
+		if(file == null)
+			throw new NullPointerException("Please input file name.");
+
+		if(file.isFile() == false)
+			throw new RuntimeException("The path which you input isn't File.");
+		MediaType mime = getContentType(file, file.getName());
+		if(!mime.toString().equals("application/pdf"))
+			throw new IllegalArgumentException("The file which you input isn't PDF.");
+		return PdfTextExtractor.getDefault().findPages(file, QS.compile(keyword, flags));
 	}
 	
 	/**
 	 * Get a list of files which are containing keyword.
 	 * 
 	 * @param dirPath target directory
-	 * @param keyword a keyword which you want to know
-	 * @return List&lt;File&gt; a list of files which are containing keyword
-	 * @throws IOException a problem of file. refer to a message
+	 * @param keyword a keyword which you want to know.
+	 * @param recursive recursive mode.
+	 * @return List&lt;File&gt; a list of files which contain keyword.
+	 * @throws IOException a problem of file. refer to a message.
 	 * @throws NullPointerException if dirPath is empty, throw it
 	 * @throws RuntimeException if not valid directory, throw it
 	 */
-	private static List<File> getFileListContainsKeywordFromDirectory(String dirPath, String keyword)
+	public static List<File> getFileListContainsKeywordFromDirectory(String dirPath, final String keyword, boolean recursive)
 			throws IOException {
-		if (dirPath == null)
-			throw new NullPointerException("Please input file name.");
+		return getFileListFromDirectory(dirPath, recursive, new FileCondition() {
+			@Override
+			public boolean matches(File file) throws IOException {
+				return isContainsKeywordFromFile(file, keyword);
+			}
+		});
+	}
 
-		File target = new File(dirPath);
-		if (target.isDirectory() == false)
-			throw new RuntimeException("The path which you input isn't Directory.");
+	/**
+	 * Get true or false about matching a regular expression. <br>
+	 * Text is streamed to the pattern, and a match can't be longer than {@link RegexWriter#DEFAULT_WINDOW_SIZE}.
+	 * 
+	 * @param file a file object Document you want
+	 * @param pattern a regular expression you want to find
+	 * @return boolean whether or not to match pattern
+	 * @throws IOException a problem of file. refer to a message
+	 */
+	public static boolean isContainsPatternFromFile(File file, Pattern pattern) throws IOException{
+		return isContainsPatternFromFile(file, pattern, RegexWriter.DEFAULT_WINDOW_SIZE);
+	}
 
-		File[] fileList = target.listFiles();
-		int len = fileList.length;
+	/**
+	 * Get true or false about matching a regular expression.
+	 * 
+	 * @param file a file object Document you want
+	 * @param pattern a regular expression you want to find
+	 * @param maxMatchLength a maximum length of a match and lookbehind context
+	 * @return boolean whether or not to match pattern
+	 * @throws IOException a problem of file. refer to a message
+	 */
+	public static boolean isContainsPatternFromFile(File file, Pattern pattern, int maxMatchLength) throws IOException{
+		if (pattern == null)
+			throw new NullPointerException("Please input pattern.");
 
-		List<File> result = new ArrayList<File>();
+		RegexWriter writer = new RegexWriter(pattern, maxMatchLength, true);
+		searchContentsFromFile(file, writer);
+		return writer.isFound();
+	}
 
-		// if a file contains keyword, add to list
-		for (int i = 0; i < len; i++) {
-			if (fileList[i].isFile() && isContainsKeywordFromFile(fileList[i].getAbsolutePath(), keyword))
-				result.add(fileList[i]);
-		}
+	/**
+	 * Get a list of files which are matching a regular expression.
+	 * 
+	 * @param dirPath target directory
+	 * @param pattern a regular expression you want to find
+	 * @param recursive recursive mode.
+	 * @return List&lt;File&gt; a list of files which match pattern.
+	 * @throws IOException a problem of file. refer to a message.
+	 * @throws NullPointerException if dirPath is empty, throw it
+	 * @throws RuntimeException if not valid directory, throw it
+	 */
+	public static List<File> getFileListContainsPatternFromDirectory(String dirPath, final Pattern pattern, boolean recursive)
+			throws IOException {
+		return getFileListFromDirectory(dirPath, recursive, new FileCondition() {
+			@Override
+			public boolean matches(File file) throws IOException {
+				return isContainsPatternFromFile(file, pattern);
+			}
+		});
+	}
 
-		return result;
+	/**
+	 * Get true or false about containing keyword approximately. <br>
+	 * A text is matched if its edit distance to keyword is maxDistance or less.
+	 * 
+	 * @param file a file object Document you want
+	 * @param keyword a thing you want to find
+	 * @param maxDistance a maximum edit distance
+	 * @return boolean whether or not to include keyword
+	 * @throws IOException a problem of file. refer to a message
+	 */
+	public static boolean isContainsApproximateKeywordFromFile(File file, String keyword, int maxDistance) throws IOException{
+		if (keyword == null)
+			throw new NullPointerException("Please input keyword.");
+
+		ApproximateQSWriter writer = new ApproximateQSWriter(ApproximateQS.compile(keyword, maxDistance), true);
+		searchContentsFromFile(file, writer);
+		return writer.isFound();
 	}
 
 	/**
-	 * Get a list of files which are containing keyword.
+	 * Get a list of files which are containing keyword approximately.
 	 * 
 	 * @param dirPath target directory
 	 * @param keyword a keyword which you want to know.
+	 * @param maxDistance a maximum edit distance
 	 * @param recursive recursive mode.
 	 * @return List&lt;File&gt; a list of files which contain keyword.
 	 * @throws IOException a problem of file. refer to a message.
 	 * @throws NullPointerException if dirPath is empty, throw it
 	 * @throws RuntimeException if not valid directory, throw it
 	 */
-	public static List<File> getFileListContainsKeywordFromDirectory(String dirPath, String keyword, boolean recursive)
-			throws IOException {
-		if (recursive == false)
-			return getFileListContainsKeywordFromDirectory(dirPath, keyword);
+	public static List<File> getFileListContainsApproximateKeywordFromDirectory(String dirPath, final String keyword,
+			final int maxDistance, boolean recursive) throws IOException {
+		return getFileListFromDirectory(dirPath, recursive, new FileCondition() {
+			@Override
+			public boolean matches(File file) throws IOException {
+				return isContainsApproximateKeywordFromFile(file, keyword, maxDistance);
+			}
+		});
+	}
+
+	/**
+	 * A condition of files which are collected from directory.
+	 */
+	private interface FileCondition {
+		boolean matches(File file) throws IOException;
+	}
 
+	/**
+	 * Get a list of files which satisfy a condition.
+	 * 
+	 * @param dirPath target directory
+	 * @param recursive recursive mode.
+	 * @param condition a condition of files
+	 * @return List&lt;File&gt; a list of files
+	 * @throws IOException a problem of file. refer to a message.
+	 * @throws NullPointerException if dirPath is empty, throw it
+	 * @throws RuntimeException if not valid directory, throw it
+	 */
+	private static List<File> getFileListFromDirectory(String dirPath, boolean recursive, FileCondition condition)
+			throws IOException {
 		if (dirPath == null)
 			throw new NullPointerException("Please input file name.");
 
-		List<File> result = new ArrayList<File>(); // return files which contain
-													// keyword.
+		List<File> result = new ArrayList<File>(); // return files which satisfy
+													// condition.
 
 		Queue<File> dirqueue = new LinkedList<File>(); // directory queue.
 		dirqueue.add(new File(dirPath));
 
 		File target;
 		/*
-		 * It is recursive. searching through files with Queue.
+		 * If recursive, searching through files with Queue.
 		 */
 		while ((target = dirqueue.poll()) != null) {
 			if (target.isDirectory() == false)
@@ -190,10 +444,11 @@ public class JSearch {
 
 			for (int i = 0; i < len; i++) {
 				if (filesInDirectory[i].isDirectory()) {
-					dirqueue.add(filesInDirectory[i]); // add directory file to
-														// queue.
+					if (recursive)
+						dirqueue.add(filesInDirectory[i]); // add directory file to
+															// queue.
 				} else if (filesInDirectory[i].isFile()) {
-					if (isContainsKeywordFromFile(filesInDirectory[i], keyword))
+					if (condition.matches(filesInDirectory[i]))
 						result.add(filesInDirectory[i]); // add a success file
 															// to list
 				} else {
@@ -224,6 +479,8 @@ public class JSearch {
 		
 		if(fileName.toLowerCase().endsWith(".hwp") && mediaType.toString().equals("application/x-tika-msoffice"))
 			return new MediaType("application", "x-hwp-v5");
+		if(fileName.toLowerCase().endsWith(".hwpx") && mediaType.toString().equals("application/zip"))
+			return new MediaType("application", "hwp+zip");
 		
 		return mediaType;
 	}
@@ -245,6 +502,8 @@ public class JSearch {
 		
 		if(fileName.toLowerCase().endsWith(".hwp") && mediaType.toString().equals("application/x-tika-msoffice"))
 			return new MediaType("application", "x-hwp-v5");
+		if(fileName.toLowerCase().endsWith(".hwpx") && mediaType.toString().equals("application/zip"))
+			return new MediaType("application", "hwp+zip");
 		
 		return mediaType;
 	}
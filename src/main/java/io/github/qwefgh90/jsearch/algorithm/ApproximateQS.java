@@ -0,0 +1,228 @@
+package io.github.qwefgh90.jsearch.algorithm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * This is for approximate search with edit distance (Levenshtein distance).
+ * <br><br>
+ * <strong>process</strong>
+ * <ol>
+ * <li>
+ * split a pattern into k+1 pieces. a match with k errors at most contains one of them exactly (pigeonhole principle)
+ * </li>
+ * <li>
+ * find pieces with QS
+ * </li>
+ * <li>
+ * verify regions near pieces with Myers' bit-parallel algorithm (dynamic programming if a pattern is longer than 64)
+ * </li>
+ * </ol>
+ * findAll() returns end indexes (exclusive) of matches.
+ * @author cheochangwon
+ */
+public class ApproximateQS {
+	private static final int PEQ_TABLE_SIZE = 128; // power of 2, more than 64 distinct characters
+
+	/**
+	 * Thread Safe
+	 * @param pattern - keyword you want
+	 * @param k - a maximum edit distance
+	 * @return ApproximateQS - New object
+	 */
+	public static ApproximateQS compile(String pattern, int k) {
+		if (k < 0)
+			throw new IllegalArgumentException("k must be 0 or more.");
+
+		ApproximateQS qs = new ApproximateQS();
+		qs.x = pattern.toCharArray();
+		qs.m = qs.x.length;
+		qs.k = k;
+
+		int m = qs.m;
+		if (m > k) {
+			int pieces = k + 1;
+			qs.pieces = new QS[pieces];
+			qs.offsets = new int[pieces];
+			for (int i = 0; i < pieces; i++) {
+				int off = i * m / pieces;
+				int end = (i + 1) * m / pieces;
+				qs.offsets[i] = off;
+				qs.pieces[i] = QS.compile(pattern.substring(off, end));
+			}
+		}
+
+		if (m > 0 && m <= 64) {
+			qs.peqKeys = new char[PEQ_TABLE_SIZE];
+			qs.peqMasks = new long[PEQ_TABLE_SIZE];
+			qs.peqUsed = new boolean[PEQ_TABLE_SIZE];
+			for (int i = 0; i < m; i++) {
+				int slot = qs.slot(qs.x[i]);
+				qs.peqKeys[slot] = qs.x[i];
+				qs.peqUsed[slot] = true;
+				qs.peqMasks[slot] |= 1L << i;
+			}
+		}
+		return qs;
+	}
+
+	public List<Integer> findAll(String source) {
+		char[] y = source.toCharArray();
+		List<Integer> result = new ArrayList<Integer>();
+		search(y, 0, y.length, -1, false, result);
+		return result;
+	}
+
+	public boolean isExist(String source) {
+		char[] y = source.toCharArray();
+		List<Integer> result = new ArrayList<Integer>();
+		search(y, 0, y.length, -1, true, result);
+		return result.size() > 0;
+	}
+
+	/**
+	 * @return a maximum length of a match
+	 */
+	public int maxMatchLength() {
+		return m + k;
+	}
+
+	/**
+	 * Find matches in y[from, to) whose end indexes are greater than minEnd.
+	 *
+	 * @param first if true, stop at a first match
+	 * @param result end indexes (exclusive) of matches in ascending order
+	 */
+	void search(char[] y, int from, int to, int minEnd, boolean first, List<Integer> result) {
+		if (m <= k) { // an empty string is a match
+			for (int e = Math.max(from, minEnd + 1); e <= to; e++) {
+				result.add(e);
+				if (first)
+					return;
+			}
+			return;
+		}
+
+		// filter : regions which contain a piece
+		List<int[]> regions = new ArrayList<int[]>();
+		for (int i = 0; i < pieces.length; i++) {
+			int found = from;
+			while ((found = pieces[i].indexOf(y, found, to)) != -1) {
+				int start = Math.max(from, found - offsets[i] - k);
+				int end = Math.min(to, found - offsets[i] + m + k);
+				if (end > minEnd)
+					regions.add(new int[] { start, end });
+				found++;
+			}
+		}
+		Collections.sort(regions, new Comparator<int[]>() {
+			@Override
+			public int compare(int[] a, int[] b) {
+				return a[0] < b[0] ? -1 : (a[0] == b[0] ? 0 : 1);
+			}
+		});
+
+		// verify merged regions
+		int i = 0;
+		while (i < regions.size()) {
+			int start = regions.get(i)[0];
+			int end = regions.get(i)[1];
+			for (i++; i < regions.size() && regions.get(i)[0] <= end; i++)
+				end = Math.max(end, regions.get(i)[1]);
+
+			if (m <= 64 ? myers(y, start, end, minEnd, first, result) : dp(y, start, end, minEnd, first, result))
+				return;
+		}
+	}
+
+	/**
+	 * Myers' bit-parallel algorithm for a pattern which is not longer than 64.
+	 *
+	 * @return true if it is stopped at a first match
+	 */
+	private boolean myers(char[] y, int from, int to, int minEnd, boolean first, List<Integer> result) {
+		long pv = -1L;
+		long mv = 0L;
+		long last = 1L << (m - 1);
+		int score = m;
+
+		for (int j = from; j < to; j++) {
+			long eq = peq(y[j]);
+			long xv = eq | mv;
+			long xh = (((eq & pv) + pv) ^ pv) | eq;
+			long ph = mv | ~(xh | pv);
+			long mh = pv & xh;
+			if ((ph & last) != 0)
+				score++;
+			else if ((mh & last) != 0)
+				score--;
+			ph <<= 1;
+			mh <<= 1;
+			pv = mh | ~(xv | ph);
+			mv = ph & xv;
+
+			if (score <= k && j + 1 > minEnd) {
+				result.add(j + 1);
+				if (first)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Dynamic programming for a long pattern.
+	 *
+	 * @return true if it is stopped at a first match
+	 */
+	private boolean dp(char[] y, int from, int to, int minEnd, boolean first, List<Integer> result) {
+		int[] column = new int[m + 1];
+		for (int i = 0; i <= m; i++)
+			column[i] = i;
+
+		for (int j = from; j < to; j++) {
+			int diagonal = column[0]; // a match can start anywhere
+			column[0] = 0;
+			for (int i = 1; i <= m; i++) {
+				int up = column[i];
+				int cost = diagonal + (x[i - 1] == y[j] ? 0 : 1);
+				column[i] = Math.min(cost, Math.min(up, column[i - 1]) + 1);
+				diagonal = up;
+			}
+			if (column[m] <= k && j + 1 > minEnd) {
+				result.add(j + 1);
+				if (first)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private int slot(char c) {
+		int slot = (c * 31) & (PEQ_TABLE_SIZE - 1);
+		while (peqUsed[slot] && peqKeys[slot] != c)
+			slot = (slot + 1) & (PEQ_TABLE_SIZE - 1);
+		return slot;
+	}
+
+	private long peq(char c) {
+		int slot = (c * 31) & (PEQ_TABLE_SIZE - 1);
+		while (peqUsed[slot]) {
+			if (peqKeys[slot] == c)
+				return peqMasks[slot];
+			slot = (slot + 1) & (PEQ_TABLE_SIZE - 1);
+		}
+		return 0L;
+	}
+
+	private char[] x;
+	private int m;
+	private int k;
+	private QS[] pieces;
+	private int[] offsets;
+	private char[] peqKeys;
+	private long[] peqMasks;
+	private boolean[] peqUsed;
+}
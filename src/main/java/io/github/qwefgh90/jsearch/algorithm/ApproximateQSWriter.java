@@ -0,0 +1,104 @@
+package io.github.qwefgh90.jsearch.algorithm;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
+
+/**
+ * A writer which runs approximate search over streamed text.
+ * <br><br>
+ * Text is kept in a fixed-size window, and the last (maximum match length - 1)
+ * characters are carried over to find a keyword across chunks.
+ * <br><br>
+ * <strong>process</strong>
+ * <ol>
+ * <li>
+ * create with compiled ApproximateQS
+ * </li>
+ * <li>
+ * write text and close()
+ * </li>
+ * <li>
+ * call isFound() or getCount()
+ * </li>
+ * </ol>
+ * @author cheochangwon
+ */
+public class ApproximateQSWriter extends Writer {
+	private static final int WINDOW_SIZE = 64 * 1024;
+
+	private final ApproximateQS qs;
+	private final boolean stopAtFirstMatch;
+	private final char[] window;
+	private final List<Integer> ends = new ArrayList<Integer>();
+	private int length = 0;
+	private int reported = -1; // matches which end at or before it are already counted
+	private int count = 0;
+
+	/**
+	 * @param qs compiled pattern
+	 * @param stopAtFirstMatch if true, throw {@link ExtractionStoppedException} when a keyword is found
+	 */
+	public ApproximateQSWriter(ApproximateQS qs, boolean stopAtFirstMatch) {
+		this.qs = qs;
+		this.stopAtFirstMatch = stopAtFirstMatch;
+		this.window = new char[Math.max(WINDOW_SIZE, qs.maxMatchLength() * 2)];
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		while (len > 0) {
+			int n = Math.min(len, window.length - length);
+			System.arraycopy(cbuf, off, window, length, n);
+			length += n;
+			off += n;
+			len -= n;
+			if (length == window.length)
+				search(false);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+	}
+
+	@Override
+	public void close() throws IOException {
+		search(true);
+		length = 0;
+		reported = -1;
+	}
+
+	/**
+	 * @return whether or not a keyword was found
+	 */
+	public boolean isFound() {
+		return count > 0;
+	}
+
+	/**
+	 * @return a count of end positions of matches
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	private void search(boolean last) throws IOException {
+		ends.clear();
+		qs.search(window, 0, length, reported, stopAtFirstMatch, ends);
+		count += ends.size();
+		if (stopAtFirstMatch && count > 0)
+			throw new ExtractionStoppedException("A keyword is found.");
+
+		if (!last) {
+			// a match which ends after carried characters starts in them
+			int carry = Math.min(length, Math.max(qs.maxMatchLength() - 1, 0));
+			System.arraycopy(window, length - carry, window, 0, carry);
+			length = carry;
+			reported = carry;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package io.github.qwefgh90.jsearch.algorithm;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This is for Quick Search Algorithm over raw bytes.
+ * <br><br>
+ * It searches an encoded pattern in a {@link ByteBuffer}
+ * (for example, a memory-mapped file) without decoding it to characters.
+ * <br><br>
+ * <strong>process</strong>
+ * <ol>
+ * <li>
+ * compile your encoded pattern
+ * </li>
+ * <li>
+ * call indexOf()
+ * </li>
+ * </ol>
+ * @author cheochangwon
+ */
+public class ByteQS {
+	private static void preQsBc(byte[] x, int qsBc[]) {
+		int i, m = x.length;
+
+		for (i = 0; i < qsBc.length; ++i)
+			qsBc[i] = m + 1;
+		for (i = 0; i < m; ++i)
+			qsBc[x[i] & 0xFF] = m - i;
+	}
+
+	/**
+	 * Thread Safe
+	 * @param pattern - encoded keyword you want
+	 * @return ByteQS - New QuickSeach object
+	 */
+	public static ByteQS compile(byte[] pattern) {
+		int[] qsBc = new int[256];
+
+		preQsBc(pattern, qsBc);
+
+		ByteQS qs = new ByteQS();
+		qs.m = pattern.length;
+		qs.x = pattern.clone();
+		qs.qsBc = qsBc;
+		return qs;
+	}
+
+	/**
+	 * Find the first occurrence of the pattern in [from, to) of source.
+	 * Positions are absolute indexes of the buffer, and the buffer's position and limit are not changed.
+	 *
+	 * @param source a buffer to be searched
+	 * @param from the first index to be searched
+	 * @param to the end index (exclusive) to be searched
+	 * @return the index of the occurrence or -1
+	 */
+	public int indexOf(ByteBuffer source, int from, int to) {
+		int j = from;
+
+		while (j < to - m) {
+			if (matchAt(source, j))
+				return j;
+			j += qsBc[source.get(j + m) & 0xFF]; /* shift */
+		}
+		if (j == to - m && matchAt(source, j))
+			return j;
+
+		return -1;
+	}
+
+	/**
+	 * @return the length of the encoded pattern
+	 */
+	public int length() {
+		return m;
+	}
+
+	private boolean matchAt(ByteBuffer source, int j) {
+		for (int i = 0; i < m; i++) {
+			if (source.get(j + i) != x[i])
+				return false;
+		}
+		return true;
+	}
+
+	private byte[] x;
+	private int m;
+	private int[] qsBc;
+}
@@ -0,0 +1,111 @@
+package io.github.qwefgh90.jsearch.algorithm;
+
+import java.text.Normalizer;
+
+/**
+ * Precomputed per-char tables for {@link QS#CASE_INSENSITIVE} and {@link QS#NORMALIZE}.
+ * <br><br>
+ * <ul>
+ * <li>case table : a simple case folding (lower case of upper case)</li>
+ * <li>width table : full-width and half-width forms and Hangul compatibility Jamo to their compatibility
+ * characters (NFKC)</li>
+ * <li>Hangul syllables are decomposed to conjoining Jamo (NFD) with arithmetic</li>
+ * <li>a syllable is a unit of match : conjoining Jamo which are joined (L+V, V+T) aren't split</li>
+ * </ul>
+ * @author cheochangwon
+ */
+final class CharFolding {
+	static final int S_BASE = 0xAC00;
+	static final int L_BASE = 0x1100;
+	static final int V_BASE = 0x1161;
+	static final int T_BASE = 0x11A7;
+	static final int T_COUNT = 28;
+	static final int N_COUNT = 21 * T_COUNT;
+	static final int S_COUNT = 19 * N_COUNT;
+
+	private static final char[] CASE_TABLE = new char[65536];
+	private static final char[] WIDTH_TABLE = new char[65536];
+	private static final char[] CASE_WIDTH_TABLE = new char[65536];
+
+	static {
+		for (int c = 0; c < 65536; c++) {
+			CASE_TABLE[c] = Character.toLowerCase(Character.toUpperCase((char) c));
+			WIDTH_TABLE[c] = (char) c;
+		}
+		WIDTH_TABLE[0x3000] = ' '; // ideographic space
+		for (int c = 0xFF01; c <= 0xFFEE; c++)
+			putNfkc(c);
+		for (int c = 0x3131; c <= 0x318E; c++)
+			putNfkc(c); // compatibility Jamo to conjoining Jamo
+		for (int c = 0; c < 65536; c++)
+			CASE_WIDTH_TABLE[c] = CASE_TABLE[WIDTH_TABLE[c]];
+	}
+
+	private CharFolding() {
+	}
+
+	private static void putNfkc(int c) {
+		String s = Normalizer.normalize(String.valueOf((char) c), Normalizer.Form.NFKC);
+		if (s.length() == 1)
+			WIDTH_TABLE[c] = s.charAt(0);
+	}
+
+	/**
+	 * @return true if b continues a syllable of a (a leading consonant and a vowel, or a vowel and a trailing
+	 *         consonant)
+	 */
+	static boolean isJoined(char a, char b) {
+		boolean vowel = b >= 0x1160 && b <= 0x11A7;
+		if (vowel)
+			return a >= 0x1100 && a <= 0x115F;
+		boolean trailing = b >= 0x11A8 && b <= 0x11FF;
+		return trailing && a >= 0x1160 && a <= 0x11A7;
+	}
+
+	/**
+	 * @param flags {@link QS#CASE_INSENSITIVE} and {@link QS#NORMALIZE}
+	 * @return a folding table for flags. null if no flag is set.
+	 */
+	static char[] table(int flags) {
+		boolean ignoreCase = (flags & QS.CASE_INSENSITIVE) != 0;
+		boolean normalize = (flags & QS.NORMALIZE) != 0;
+		if (ignoreCase && normalize)
+			return CASE_WIDTH_TABLE;
+		else if (ignoreCase)
+			return CASE_TABLE;
+		else if (normalize)
+			return WIDTH_TABLE;
+		return null;
+	}
+
+	/**
+	 * Fold source[from, to) into folded.
+	 * origins[i] is an index of source which produces folded[i].
+	 * folded and origins need 3 * (to - from) length at most.
+	 *
+	 * @return a length of folded characters
+	 */
+	static int fold(char[] table, boolean decompose, char[] source, int from, int to, char[] folded,
+			int[] origins) {
+		int len = 0;
+		for (int i = from; i < to; i++) {
+			char c = source[i];
+			int s = c - S_BASE;
+			if (decompose && s >= 0 && s < S_COUNT) {
+				folded[len] = (char) (L_BASE + s / N_COUNT);
+				origins[len++] = i;
+				folded[len] = (char) (V_BASE + (s % N_COUNT) / T_COUNT);
+				origins[len++] = i;
+				int t = s % T_COUNT;
+				if (t != 0) {
+					folded[len] = (char) (T_BASE + t);
+					origins[len++] = i;
+				}
+			} else {
+				folded[len] = table[c];
+				origins[len++] = i;
+			}
+		}
+		return len;
+	}
+}
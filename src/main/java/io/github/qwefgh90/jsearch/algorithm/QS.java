@@ -1,6 +1,7 @@
 package io.github.qwefgh90.jsearch.algorithm;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -15,9 +16,25 @@ import java.util.List;
  * call findAll() or isExist()
  * </li>
  * </ol>
+ * With {@link #CASE_INSENSITIVE} or {@link #NORMALIZE}, both a pattern and a text are folded
+ * through precomputed tables inside the matcher. A match starts and ends at characters of the text,
+ * and returned indexes are indexes of the original text.
  * @author cheochangwon
  */
 public class QS {
+	/**
+	 * Ignore case with a simple case folding.
+	 */
+	public static final int CASE_INSENSITIVE = 0x01;
+
+	/**
+	 * Match full-width forms with their compatibility characters, and
+	 * Hangul syllables (NFC) with conjoining Jamo (NFD).
+	 */
+	public static final int NORMALIZE = 0x02;
+
+	private static final int FOLD_CHUNK_SIZE = 8 * 1024;
+
 	/*
 	 * useless 
 	 * --->
@@ -106,7 +123,41 @@ public class QS {
 		
 	}
 	
+	/**
+	 * Thread Safe
+	 * @param pattern - keyword you want
+	 * @param flags - {@link #CASE_INSENSITIVE}, {@link #NORMALIZE} or 0
+	 * @return QS - New QuickSeach object
+	 */
+	public static QS compile(String pattern, int flags) {
+		char[] table = CharFolding.table(flags);
+		if (table == null)
+			return compile(pattern);
+
+		boolean decompose = (flags & NORMALIZE) != 0;
+		char[] source = pattern.toCharArray();
+		char[] folded = new char[source.length * 3];
+		int m = CharFolding.fold(table, decompose, source, 0, source.length, folded, new int[folded.length]);
+		char[] x = Arrays.copyOf(folded, m);
+
+		int[] qsBc = new int[65536];
+
+		preQsBc(x, qsBc);
+
+		QS qs = new QS();
+		qs.m = m;
+		qs.x = x;
+		qs.qsBc = qsBc;
+		qs.pattern = pattern;
+		qs.table = table;
+		qs.decompose = decompose;
+		return qs;
+	}
+
 	public List<Integer> findAll(String source) {
+		if (table != null)
+			return findAllFolded(source.toCharArray(), false);
+
 		char[] y = source.toCharArray();
 		int j, n = y.length;
 		List<Integer> result = new ArrayList<Integer>();
@@ -124,6 +175,9 @@ public class QS {
 	}
 	
 	public boolean isExist(String source) {
+		if (table != null)
+			return findAllFolded(source.toCharArray(), true).size() > 0;
+
 		char[] y = source.toCharArray();
 		int j, n = y.length;
 		
@@ -139,8 +193,148 @@ public class QS {
 		return false;
 	}
 	
+	/**
+	 * Find the first occurrence of the pattern in [from, to) of source.
+	 * A folding matcher folds source in chunks, and source[from - 1] is a context of a syllable.
+	 * 
+	 * @param source characters to be searched
+	 * @param from the first index to be searched
+	 * @param to the end index (exclusive) to be searched
+	 * @return the index of the occurrence or -1
+	 */
+	public int indexOf(char[] source, int from, int to) {
+		if (table != null)
+			return findFolded(source, from, to, null);
+
+		int j = from;
+
+		while (j < to - m) {
+			if (matchAt(source, j))
+				return j;
+			j += qsBc[source[j + m]]; /* shift */
+		}
+		if (j == to - m && matchAt(source, j))
+			return j;
+
+		return -1;
+	}
+
+	/**
+	 * @return the length of the pattern
+	 */
+	public int length() {
+		return m;
+	}
+
+	/**
+	 * @return whether or not this matcher folds text
+	 */
+	boolean isFolding() {
+		return table != null;
+	}
+
+	/**
+	 * Fold source[from, to) into folded with the table of this matcher.
+	 * @return a length of folded characters
+	 */
+	int fold(char[] source, int from, int to, char[] folded, int[] origins) {
+		return CharFolding.fold(table, decompose, source, from, to, folded, origins);
+	}
+
+	/**
+	 * Find the pattern in folded[from, len). With {@link #NORMALIZE}, a match must start and end at
+	 * a boundary of syllables, whether a syllable is precomposed (NFC) or conjoining Jamo (NFD).
+	 * folded[from - 1] and folded[len - 1] can be context characters for the boundary.
+	 * @return an index of folded or -1
+	 */
+	int indexOfFolded(char[] folded, int[] origins, int from, int len) {
+		int j = from;
+
+		while (j < len - m) {
+			if (matchAt(folded, j) && isBoundary(folded, j, len))
+				return j;
+			j += qsBc[folded[j + m]]; /* shift */
+		}
+		if (j == len - m && matchAt(folded, j) && isBoundary(folded, j, len))
+			return j;
+
+		return -1;
+	}
+
+	private boolean isBoundary(char[] folded, int j, int len) {
+		if (!decompose || m == 0)
+			return true;
+		if (j > 0 && CharFolding.isJoined(folded[j - 1], folded[j]))
+			return false;
+		if (j + m < len && CharFolding.isJoined(folded[j + m - 1], folded[j + m]))
+			return false;
+		return true;
+	}
+
+	/**
+	 * @return an index of first folded character which comes from source[origin] or later
+	 */
+	static int firstFolded(int[] origins, int len, int origin) {
+		int k = 0;
+		while (k < len && origins[k] < origin)
+			k++;
+		return k;
+	}
+
+	private List<Integer> findAllFolded(char[] y, boolean first) {
+		List<Integer> result = new ArrayList<Integer>();
+		int found = findFolded(y, 0, y.length, first ? null : result);
+		if (first && found != -1)
+			result.add(found);
+		return result;
+	}
+
+	/**
+	 * Fold y[from, to) in chunks and find matches which start in it. A chunk is folded with one character of
+	 * context on both sides, so a boundary of syllables is checked at edges of chunks.
+	 * @param all if null, return a first match. otherwise, add all matches to it
+	 * @return an index of a first match or -1
+	 */
+	private int findFolded(char[] y, int from, int to, List<Integer> all) {
+		int carry = Math.max(m - 1, 0);
+		int chunk = Math.max(FOLD_CHUNK_SIZE, m * 2);
+		char[] folded = new char[(chunk + carry + 2) * 3];
+		int[] origins = new int[folded.length];
+
+		int start = from;
+		while (true) {
+			int end = Math.min(to, start + chunk + carry);
+			// matches which start at [start, bound) are reported in this round
+			int bound = end == to ? to : end - carry;
+			int foldFrom = start > 0 ? start - 1 : start;
+			int foldTo = end < to ? end + 1 : end;
+			int len = fold(y, foldFrom, foldTo, folded, origins);
+			int found = firstFolded(origins, len, start);
+			while ((found = indexOfFolded(folded, origins, found, len)) != -1 && origins[found] < bound) {
+				if (all == null)
+					return origins[found];
+				all.add(origins[found]);
+				found++;
+			}
+			if (end == to)
+				break;
+			start = bound;
+		}
+		return -1;
+	}
+
+	private boolean matchAt(char[] y, int j) {
+		for (int i = 0; i < m; i++) {
+			if (y[j + i] != x[i])
+				return false;
+		}
+		return true;
+	}
+	
 	private char[] x;
 	private int m;
 	private int[] qsBc;
+	private char[] table;
+	private boolean decompose;
 	String pattern=null;
 }
\ No newline at end of file
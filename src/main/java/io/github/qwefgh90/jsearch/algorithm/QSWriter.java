@@ -0,0 +1,131 @@
+package io.github.qwefgh90.jsearch.algorithm;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
+
+/**
+ * A writer which runs Quick Search over streamed text.
+ * <br><br>
+ * Text is kept in a fixed-size window, and the last (pattern length - 1)
+ * characters are carried over to find a keyword across chunks.
+ * <br><br>
+ * <strong>process</strong>
+ * <ol>
+ * <li>
+ * create with compiled QS
+ * </li>
+ * <li>
+ * write text and close()
+ * </li>
+ * <li>
+ * call isFound() or getCount()
+ * </li>
+ * </ol>
+ * @author cheochangwon
+ */
+public class QSWriter extends Writer {
+	private static final int WINDOW_SIZE = 8 * 1024;
+
+	private final QS qs;
+	private final boolean stopAtFirstMatch;
+	private final char[] window;
+	private final char[] folded;
+	private final int[] origins;
+	private int length = 0;
+	private int context = 0; // window[0, context) is searched already
+	private int count = 0;
+
+	/**
+	 * @param qs compiled pattern
+	 * @param stopAtFirstMatch if true, throw {@link ExtractionStoppedException} when a keyword is found
+	 */
+	public QSWriter(QS qs, boolean stopAtFirstMatch) {
+		this.qs = qs;
+		this.stopAtFirstMatch = stopAtFirstMatch;
+		this.window = new char[Math.max(WINDOW_SIZE, qs.length() * 2)];
+		this.folded = qs.isFolding() ? new char[window.length * 3] : null;
+		this.origins = qs.isFolding() ? new int[window.length * 3] : null;
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		while (len > 0) {
+			int n = Math.min(len, window.length - length);
+			System.arraycopy(cbuf, off, window, length, n);
+			length += n;
+			off += n;
+			len -= n;
+			if (length == window.length)
+				search(false);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+	}
+
+	@Override
+	public void close() throws IOException {
+		search(true);
+		length = 0;
+		context = 0;
+	}
+
+	/**
+	 * @return whether or not a keyword was found
+	 */
+	public boolean isFound() {
+		return count > 0;
+	}
+
+	/**
+	 * @return a count of keyword
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	private void search(boolean last) throws IOException {
+		int m = qs.length();
+		if (!qs.isFolding() && length < m)
+			return;
+
+		// carry over characters which can be a part of next match.
+		// a match spans m characters at most, and matches which start in them are found in next round.
+		int carry = last ? 0 : Math.max(m - 1, 0);
+		if (qs.isFolding()) {
+			// one more character is a lookahead of a syllable, and one character before bound is kept as context
+			int bound = last ? length : length - carry - 1;
+			int len = qs.fold(window, 0, length, folded, origins);
+			int found = QS.firstFolded(origins, len, context);
+			while ((found = qs.indexOfFolded(folded, origins, found, len)) != -1 && origins[found] < bound) {
+				matched();
+				found++;
+			}
+			if (!last) {
+				int keep = Math.max(bound - 1, 0);
+				context = bound - keep;
+				System.arraycopy(window, keep, window, 0, length - keep);
+				length -= keep;
+			}
+			return;
+		}
+
+		int bound = length - carry;
+		int found = 0;
+		while ((found = qs.indexOf(window, found, length)) != -1 && found < bound) {
+			matched();
+			found++;
+		}
+		System.arraycopy(window, bound, window, 0, carry);
+		length = carry;
+	}
+
+	private void matched() throws ExtractionStoppedException {
+		count++;
+		if (stopAtFirstMatch)
+			throw new ExtractionStoppedException("A keyword is found.");
+	}
+}
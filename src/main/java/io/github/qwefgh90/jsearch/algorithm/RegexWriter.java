@@ -0,0 +1,161 @@
+package io.github.qwefgh90.jsearch.algorithm;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
+
+/**
+ * A writer which runs a regular expression over streamed text.
+ * <br><br>
+ * Text is kept in a fixed-size buffer. A match can't be longer than the window,
+ * and the last characters of the window are carried over as lookbehind context
+ * and as a start of matches across chunks.
+ * <br><br>
+ * If a pattern has a required literal, QS finds candidates first
+ * and the regular expression runs only near them.
+ * <br><br>
+ * <strong>process</strong>
+ * <ol>
+ * <li>
+ * create with compiled Pattern
+ * </li>
+ * <li>
+ * write text and close()
+ * </li>
+ * <li>
+ * call isFound() or getCount()
+ * </li>
+ * </ol>
+ * @author cheochangwon
+ */
+public class RegexWriter extends Writer {
+	/**
+	 * a default maximum length of a match
+	 */
+	public static final int DEFAULT_WINDOW_SIZE = 1024;
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	private final Matcher matcher;
+	private final QS literal;
+	private final int window;
+	private final boolean stopAtFirstMatch;
+	private final char[] buffer;
+	private final CharBuffer text;
+	private int length = 0;
+	private int from = 0; // matches which start before it are already reported
+	private int count = 0;
+
+	/**
+	 * @param pattern a regular expression
+	 * @param stopAtFirstMatch if true, throw {@link ExtractionStoppedException} when a pattern is found
+	 */
+	public RegexWriter(Pattern pattern, boolean stopAtFirstMatch) {
+		this(pattern, DEFAULT_WINDOW_SIZE, stopAtFirstMatch);
+	}
+
+	/**
+	 * @param pattern a regular expression
+	 * @param window a maximum length of a match and lookbehind context
+	 * @param stopAtFirstMatch if true, throw {@link ExtractionStoppedException} when a pattern is found
+	 */
+	public RegexWriter(Pattern pattern, int window, boolean stopAtFirstMatch) {
+		if (window <= 0)
+			throw new IllegalArgumentException("window must be positive.");
+		String required = RequiredLiteral.of(pattern);
+		this.literal = required == null ? null : QS.compile(required);
+		this.window = window;
+		this.stopAtFirstMatch = stopAtFirstMatch;
+		this.buffer = new char[CHUNK_SIZE + window * 2];
+		this.text = CharBuffer.wrap(buffer);
+		this.matcher = pattern.matcher(text);
+		this.matcher.useTransparentBounds(true);
+		this.matcher.useAnchoringBounds(false);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		while (len > 0) {
+			int n = Math.min(len, buffer.length - length);
+			System.arraycopy(cbuf, off, buffer, length, n);
+			length += n;
+			off += n;
+			len -= n;
+			if (length == buffer.length)
+				search(false);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+	}
+
+	@Override
+	public void close() throws IOException {
+		search(true);
+		length = 0;
+		from = 0;
+	}
+
+	/**
+	 * @return whether or not a pattern was found
+	 */
+	public boolean isFound() {
+		return count > 0;
+	}
+
+	/**
+	 * @return a count of matches
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	private void search(boolean last) throws IOException {
+		// matches which start at [from, bound) are complete in this buffer
+		int bound = last ? length : length - window;
+		text.limit(length);
+		matcher.reset(text);
+
+		if (literal == null) {
+			find(from, length, bound);
+		} else {
+			int m = literal.length();
+			int next = Math.max(from, 0);
+			int found;
+			while ((found = literal.indexOf(buffer, next, length)) != -1) {
+				// a match which contains the literal starts at [found + m - window, found]
+				int start = Math.max(from, found + m - window);
+				if (start >= bound)
+					break;
+				int end = Math.min(length, start + window * 2);
+				find(start, end, bound);
+				// literals whose matches are inside [start, end) are already checked
+				next = Math.max(found + 1, end - window + 1);
+			}
+		}
+
+		// carry over lookbehind context and unreported characters
+		if (!last) {
+			int shift = bound - window;
+			System.arraycopy(buffer, shift, buffer, 0, length - shift);
+			from = Math.max(window, from - shift);
+			length -= shift;
+		}
+	}
+
+	private void find(int start, int end, int bound) throws ExtractionStoppedException {
+		matcher.region(start, end);
+		while (matcher.find()) {
+			if (matcher.start() >= bound)
+				return;
+			count++;
+			from = Math.max(from, matcher.end() > matcher.start() ? matcher.end() : matcher.start() + 1);
+			if (stopAtFirstMatch)
+				throw new ExtractionStoppedException("A pattern is found.");
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package io.github.qwefgh90.jsearch.algorithm;
+
+import java.util.regex.Pattern;
+
+/**
+ * Find the longest literal which every match of a regular expression contains.
+ * <br><br>
+ * Only a top-level sequence is considered. Groups, character classes and
+ * optional atoms break a literal. If a pattern has a top-level alternation
+ * or flags which change literal matching, there is no required literal.
+ * @author cheochangwon
+ */
+final class RequiredLiteral {
+	private static final String META = "\\[](){}.*+?^$|";
+
+	private RequiredLiteral() {
+	}
+
+	/**
+	 * @param pattern compiled regular expression
+	 * @return the longest required literal or null
+	 */
+	static String of(Pattern pattern) {
+		int flags = pattern.flags();
+		if ((flags & Pattern.LITERAL) != 0)
+			return pattern.pattern().length() > 0 ? pattern.pattern() : null;
+		if ((flags & (Pattern.CASE_INSENSITIVE | Pattern.COMMENTS | Pattern.CANON_EQ)) != 0)
+			return null;
+		return of(pattern.pattern());
+	}
+
+	static String of(String regex) {
+		String best = "";
+		StringBuilder run = new StringBuilder();
+		boolean lastIsLiteral = false; // last atom is the last char of run
+		int n = regex.length();
+		int i = 0;
+
+		while (i < n) {
+			char c = regex.charAt(i);
+			switch (c) {
+			case '|':
+				return null;
+			case '\\':
+				if (i + 1 >= n)
+					return null;
+				char e = regex.charAt(i + 1);
+				if (e == 'Q') {
+					int end = regex.indexOf("\\E", i + 2);
+					String quoted = end == -1 ? regex.substring(i + 2) : regex.substring(i + 2, end);
+					run.append(quoted);
+					lastIsLiteral = quoted.length() > 0;
+					i = end == -1 ? n : end + 2;
+					continue;
+				} else if (META.indexOf(e) >= 0 || e == '/' || e == '-' || e == '"' || e == '\'' || e == ' ') {
+					run.append(e);
+					lastIsLiteral = true;
+				} else {
+					best = longer(best, run);
+					lastIsLiteral = false;
+				}
+				i += 2;
+				if (e == 'p' || e == 'P' || e == 'x' || e == 'u' || e == 'c' || e == 'k' || e == '0')
+					i = skipEscapeArgument(regex, i, e);
+				continue;
+			case '[':
+				best = longer(best, run);
+				lastIsLiteral = false;
+				i = skipClass(regex, i);
+				continue;
+			case '(':
+				best = longer(best, run);
+				lastIsLiteral = false;
+				if (hasInlineFlags(regex, i))
+					return null;
+				i = skipGroup(regex, i);
+				if (i < 0)
+					return null; // alternation in group is allowed, but unbalanced group is not
+				continue;
+			case '?':
+			case '*':
+			case '{':
+				// a last atom is optional
+				if (lastIsLiteral)
+					run.setLength(run.length() - 1);
+				best = longer(best, run);
+				lastIsLiteral = false;
+				i = c == '{' ? skipTo(regex, i, '}') : i + 1;
+				i = skipQuantifierSuffix(regex, i);
+				continue;
+			case '+':
+				// a last atom is repeated. it is required once.
+				best = longer(best, run);
+				lastIsLiteral = false;
+				i = skipQuantifierSuffix(regex, i + 1);
+				continue;
+			case '.':
+			case '^':
+			case '$':
+				best = longer(best, run);
+				lastIsLiteral = false;
+				i++;
+				continue;
+			default:
+				run.append(c);
+				lastIsLiteral = true;
+				i++;
+			}
+		}
+		best = longer(best, run);
+		return best.length() > 0 ? best : null;
+	}
+
+	/**
+	 * @return a longer string and clear run
+	 */
+	private static String longer(String best, StringBuilder run) {
+		String result = run.length() > best.length() ? run.toString() : best;
+		run.setLength(0);
+		return result;
+	}
+
+	/**
+	 * @return true if a group at i is like (?i) or (?x:...) which changes literal matching
+	 */
+	private static boolean hasInlineFlags(String regex, int i) {
+		if (!regex.startsWith("(?", i))
+			return false;
+		for (int j = i + 2; j < regex.length(); j++) {
+			char c = regex.charAt(j);
+			if (c == 'i' || c == 'x' || c == 'u' || c == 'U')
+				return true;
+			if ("dms-".indexOf(c) < 0)
+				return false;
+		}
+		return false;
+	}
+
+	private static int skipQuantifierSuffix(String regex, int i) {
+		if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+'))
+			return i + 1;
+		return i;
+	}
+
+	private static int skipTo(String regex, int i, char c) {
+		int end = regex.indexOf(c, i);
+		return end == -1 ? regex.length() : end + 1;
+	}
+
+	private static int skipEscapeArgument(String regex, int i, char e) {
+		if (i < regex.length() && (regex.charAt(i) == '{' || regex.charAt(i) == '<'))
+			return skipTo(regex, i, regex.charAt(i) == '{' ? '}' : '>');
+		if (e == 'x')
+			return Math.min(regex.length(), i + 2);
+		if (e == 'u')
+			return Math.min(regex.length(), i + 4);
+		if (e == 'c')
+			return Math.min(regex.length(), i + 1);
+		if (e == 'p' || e == 'P')
+			return Math.min(regex.length(), i + 1);
+		int j = i; // octal
+		while (j < regex.length() && j < i + 3 && regex.charAt(j) >= '0' && regex.charAt(j) <= '7')
+			j++;
+		return j;
+	}
+
+	private static int skipClass(String regex, int i) {
+		int depth = 0;
+		int n = regex.length();
+		for (int j = i; j < n; j++) {
+			char c = regex.charAt(j);
+			if (c == '\\') {
+				j++;
+			} else if (c == '[') {
+				depth++;
+				if (j + 1 < n && regex.charAt(j + 1) == '^')
+					j++;
+				if (j + 1 < n && regex.charAt(j + 1) == ']')
+					j++; // ']' at first is a literal
+			} else if (c == ']') {
+				if (--depth == 0)
+					return j + 1;
+			}
+		}
+		return n;
+	}
+
+	private static int skipGroup(String regex, int i) {
+		int depth = 0;
+		int n = regex.length();
+		for (int j = i; j < n; j++) {
+			char c = regex.charAt(j);
+			if (c == '\\') {
+				j++;
+			} else if (c == '[') {
+				j = skipClass(regex, j) - 1;
+			} else if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				if (--depth == 0)
+					return j + 1;
+			}
+		}
+		return -1;
+	}
+}
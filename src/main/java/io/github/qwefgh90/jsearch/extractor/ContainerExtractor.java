@@ -0,0 +1,607 @@
+package io.github.qwefgh90.jsearch.extractor;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZFile;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.extractor.EmbeddedDocumentExtractor;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.mime.MediaType;
+import org.apache.tika.parser.EmptyParser;
+import org.apache.tika.parser.ParseContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
+import io.github.qwefgh90.jsearch.JSearch;
+import io.github.qwefgh90.jsearch.extractor.hwp.HwpTextExtractorWrapper;
+import io.github.qwefgh90.jsearch.extractor.hwp.HwpxTextExtractor;
+
+/**
+ * Extract text of archives (ZIP, 7z, tar) and Word/PowerPoint documents with their embedded documents entry by
+ * entry. <br>
+ * <br>
+ * Each entry is read into memory, its type is detected and it is routed with {@link ExtractorRegistry#getDefault()}.
+ * Entries of HWP, HWPX, archives, Word/PowerPoint, text and Tika types are extracted in memory by this class, so an
+ * HWP document which is embedded in a docx is extracted by {@link HwpTextExtractorWrapper}. Entries of other
+ * extractors (PDF, spreadsheets and plugins) are written to a temporary file which is given to the extractor.
+ * Entries which are larger than a limit are skipped. Archives and documents in an entry (including attachments of
+ * PDF) are extracted recursively until a maximum depth. <br>
+ * <br>
+ * If an executor is given, entries are extracted in parallel and text is written in order of entries (body text of
+ * a document stays between its embedded documents). A few entries are kept in memory at most. If writer throws
+ * {@link ExtractionStoppedException}, pending entries are cancelled. <br>
+ * <br>
+ * <strong>process</strong>
+ * <ol>
+ * <li>create with executor (optional) and set limits, or call getDefault()</li>
+ * <li>call extract()</li>
+ * </ol>
+ *
+ * @author Chang
+ */
+public class ContainerExtractor {
+	protected static Logger log = LoggerFactory.getLogger(ContainerExtractor.class);
+
+	public static final long DEFAULT_MAX_ENTRY_SIZE = 32 * 1024 * 1024;
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+	public static final int DEFAULT_MAX_DEPTH = 3;
+
+	private static final MediaType ZIP = MediaType.application("zip");
+	private static final MediaType SEVEN_Z = MediaType.application("x-7z-compressed");
+	private static final MediaType TAR = MediaType.application("x-tar");
+	private static final Set<MediaType> HWP = Collections.unmodifiableSet(new HashSet<MediaType>(
+			Arrays.asList(MediaType.application("x-hwp"), MediaType.application("x-hwp-v5"))));
+	private static final MediaType HWPX = MediaType.application("hwp+zip");
+	private static final MediaType OLE2 = MediaType.application("x-tika-msoffice");
+	private static final Set<MediaType> DOCUMENTS = Collections.unmodifiableSet(new HashSet<MediaType>(Arrays.asList(
+			MediaType.application("msword"),
+			MediaType.application("vnd.openxmlformats-officedocument.wordprocessingml.document"),
+			MediaType.application("vnd.ms-word.document.macroenabled.12"),
+			MediaType.application("vnd.ms-powerpoint"),
+			MediaType.application("vnd.openxmlformats-officedocument.presentationml.presentation"),
+			MediaType.application("vnd.ms-powerpoint.presentation.macroenabled.12"))));
+
+	/**
+	 * depth of an entry which an extractor of file is reading on a current thread
+	 */
+	private static final ThreadLocal<Integer> FILE_DEPTH = new ThreadLocal<Integer>();
+
+	private final ExecutorService executor;
+	private final int maxPending;
+	private long maxEntrySize = DEFAULT_MAX_ENTRY_SIZE;
+	private int maxEntries = DEFAULT_MAX_ENTRIES;
+	private int maxDepth = DEFAULT_MAX_DEPTH;
+
+	/**
+	 * Extract entries in order on a current thread.
+	 */
+	public ContainerExtractor() {
+		this(null);
+	}
+
+	/**
+	 * @param executor a pool which extracts entries in parallel. if null, entries are extracted in order. executor
+	 *            isn't shut down by this class
+	 */
+	public ContainerExtractor(ExecutorService executor) {
+		this.executor = executor;
+		this.maxPending = Runtime.getRuntime().availableProcessors() * 2;
+	}
+
+	/**
+	 * @return an extractor with a shared pool of daemon threads (one per processor) and default limits
+	 */
+	public static ContainerExtractor getDefault() {
+		return DefaultHolder.extractor;
+	}
+
+	/**
+	 * @param maxEntrySize a maximum size (bytes) of entry. larger entries are skipped. an entry is read into an
+	 *            array, so it is {@link Integer#MAX_VALUE} at most
+	 */
+	public void setMaxEntrySize(long maxEntrySize) {
+		this.maxEntrySize = Math.min(maxEntrySize, Integer.MAX_VALUE);
+	}
+
+	public long getMaxEntrySize() {
+		return maxEntrySize;
+	}
+
+	/**
+	 * @param maxEntries a maximum count of entries of a file. entries after it are skipped
+	 */
+	public void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * @param maxDepth a maximum depth of archives and documents in an entry
+	 */
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = maxDepth;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * @param type mime type
+	 * @return true if type is ZIP, 7z or tar
+	 */
+	public static boolean isArchive(MediaType type) {
+		MediaType base = type.getBaseType();
+		return ZIP.equals(base) || SEVEN_Z.equals(base) || TAR.equals(base);
+	}
+
+	/**
+	 * @param type mime type
+	 * @return true if type is a Word or PowerPoint document whose embedded documents are extracted
+	 */
+	public static boolean isDocument(MediaType type) {
+		return DOCUMENTS.contains(type.getBaseType());
+	}
+
+	/**
+	 * @param file archive or office file
+	 * @param type mime type of file
+	 * @return extracted text
+	 * @throws IOException a problem of file. refer to a message.
+	 */
+	public String extract(File file, MediaType type) throws IOException {
+		StringWriter writer = new StringWriter();
+		extract(file, type, writer);
+		return writer.toString();
+	}
+
+	/**
+	 * Extract text of entries (or body and embedded documents) to writer.
+	 *
+	 * @param file archive or office file
+	 * @param type mime type of file
+	 * @param writer a destination of text
+	 * @throws IOException a problem of file. refer to a message.
+	 * @throws ExtractionStoppedException if writer stops extraction
+	 */
+	public void extract(File file, MediaType type, Writer writer) throws IOException {
+		Pipeline pipeline = new Pipeline(writer, 0);
+		try {
+			MediaType base = type.getBaseType();
+			if (ZIP.equals(base))
+				extractZip(file, pipeline);
+			else if (SEVEN_Z.equals(base))
+				extractSevenZ(file, pipeline);
+			else if (TAR.equals(base))
+				try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+					extractArchive(new TarArchiveInputStream(input), pipeline);
+				}
+			else {
+				Metadata metadata = new Metadata();
+				try (TikaInputStream input = TikaInputStream.get(file.toPath(), metadata)) {
+					extractDocument(input, type, metadata, pipeline);
+				}
+			}
+			pipeline.finish();
+		} finally {
+			pipeline.cancel();
+		}
+	}
+
+	/**
+	 * ZipFile reads entries in place with a central directory
+	 */
+	private void extractZip(File file, Pipeline pipeline) throws IOException {
+		ZipFile zip = new ZipFile(file);
+		try {
+			Enumeration<ZipArchiveEntry> entries = zip.getEntriesInPhysicalOrder();
+			while (entries.hasMoreElements()) {
+				ZipArchiveEntry entry = entries.nextElement();
+				if (entry.isDirectory() || !zip.canReadEntryData(entry))
+					continue;
+				if (!pipeline.accept(entry.getName(), entry.getSize()))
+					continue;
+				try (InputStream input = zip.getInputStream(entry)) {
+					pipeline.submit(entry.getName(), read(entry.getName(), input));
+				}
+			}
+		} finally {
+			zip.close();
+		}
+	}
+
+	private void extractSevenZ(File file, Pipeline pipeline) throws IOException {
+		SevenZFile sevenZ = new SevenZFile(file);
+		try {
+			SevenZArchiveEntry entry;
+			while ((entry = sevenZ.getNextEntry()) != null) {
+				if (entry.isDirectory() || !entry.hasStream())
+					continue;
+				if (!pipeline.accept(entry.getName(), entry.getSize()))
+					continue;
+				byte[] data = new byte[(int) entry.getSize()];
+				int offset = 0;
+				int read;
+				while (offset < data.length && (read = sevenZ.read(data, offset, data.length - offset)) != -1)
+					offset += read;
+				pipeline.submit(entry.getName(), data);
+			}
+		} finally {
+			sevenZ.close();
+		}
+	}
+
+	/**
+	 * Read entries of archive stream in order and submit them to pipeline.
+	 */
+	private void extractArchive(ArchiveInputStream input, Pipeline pipeline) throws IOException {
+		ArchiveEntry entry;
+		while ((entry = input.getNextEntry()) != null) {
+			if (entry.isDirectory() || !input.canReadEntryData(entry))
+				continue;
+			if (!pipeline.accept(entry.getName(), entry.getSize()))
+				continue;
+			pipeline.submit(entry.getName(), read(entry.getName(), input));
+		}
+	}
+
+	/**
+	 * Body is written to pipeline and embedded documents are submitted to pipeline. Embedded documents which no
+	 * extractor reads (e.g. pictures) are skipped without reading.
+	 */
+	private void extractDocument(TikaInputStream input, MediaType type, Metadata metadata, final Pipeline pipeline)
+			throws IOException {
+		final TikaParserRegistry registry = TikaTextExtractor.getRegistry();
+		ParseContext context = registry.createContext(false);
+		context.set(EmbeddedDocumentExtractor.class, new EmbeddedDocumentExtractor() {
+			private int count = 0;
+
+			@Override
+			public boolean shouldParseEmbedded(Metadata metadata) {
+				return true;
+			}
+
+			@Override
+			public void parseEmbedded(InputStream stream, ContentHandler handler, Metadata metadata,
+					boolean outputHtml) throws SAXException, IOException {
+				String name = metadata.get(Metadata.RESOURCE_NAME_KEY);
+				if (name == null)
+					name = "embedded-" + count;
+				count++;
+				// TikaInputStream resets a stream after detection
+				TikaInputStream input = TikaInputStream.get(stream);
+				if (!isExtracted(JSearch.getContentType(input, name).getBaseType(), registry)) {
+					log.debug("skip embedded {}", name);
+					return;
+				}
+				if (pipeline.accept(name, -1))
+					pipeline.submit(name, read(name, input));
+			}
+		});
+
+		metadata.set(Metadata.CONTENT_TYPE, type.toString());
+		try {
+			registry.getParser(type).parse(input, new StreamingContentHandler(pipeline), metadata, context);
+		} catch (SAXException | TikaException e) {
+			TikaTextExtractor.rethrowIfStopped(e);
+			throw new IOException(e);
+		}
+	}
+
+	private static boolean isExtracted(MediaType type, TikaParserRegistry registry) {
+		return HWP.contains(type) || HWPX.equals(type) || isArchive(type)
+				|| !isInMemory(ExtractorRegistry.getDefault().getExtractor(type))
+				|| registry.getParser(type) != EmptyParser.INSTANCE;
+	}
+
+	/**
+	 * @return true if entries of extractor are extracted in memory by this class instead of extractor
+	 */
+	private static boolean isInMemory(Extractor extractor) {
+		if (extractor == null)
+			return true;
+		Class<?> c = extractor.getClass();
+		return c == DefaultExtractors.Hwp.class || c == DefaultExtractors.Hwpx.class
+				|| c == DefaultExtractors.Container.class || c == DefaultExtractors.PlainText.class
+				|| c == DefaultExtractors.Tika.class;
+	}
+
+	/**
+	 * Detect a type of entry and extract text to out. A broken entry is skipped.
+	 */
+	private void extractEntry(String name, byte[] data, int depth, Writer out) throws IOException {
+		if (data == null)
+			return;
+		MediaType type = JSearch.getContentType(new ByteArrayInputStream(data), name).getBaseType();
+		Extractor extractor = ExtractorRegistry.getDefault().getExtractor(type);
+		log.debug("entry: {}, {}", name, type);
+
+		try {
+			if (!isInMemory(extractor)) {
+				extractFile(name, data, type, extractor, depth, out);
+			} else if (HWP.contains(type)) {
+				new HwpTextExtractorWrapper().extract(data, out);
+			} else if (HWPX.equals(type)) {
+				HwpxTextExtractor.extract(data, out);
+			} else if (OLE2.equals(type) && new HwpTextExtractorWrapper().extract(data, out)) {
+				// HWP 5.0 whose name isn't *.hwp (e.g. an OLE object in a document)
+			} else if (ZIP.equals(type) || TAR.equals(type) || DOCUMENTS.contains(type)) {
+				if (depth + 1 >= maxDepth) {
+					log.info("skip {}. too deep container", name);
+					return;
+				}
+				Pipeline pipeline = new Pipeline(out, depth + 1);
+				if (ZIP.equals(type))
+					extractArchive(new ZipArchiveInputStream(new ByteArrayInputStream(data)), pipeline);
+				else if (TAR.equals(type))
+					extractArchive(new TarArchiveInputStream(new ByteArrayInputStream(data)), pipeline);
+				else {
+					Metadata metadata = new Metadata();
+					metadata.set(Metadata.RESOURCE_NAME_KEY, name);
+					extractDocument(TikaInputStream.get(data, metadata), type, metadata, pipeline);
+				}
+			} else if (SEVEN_Z.equals(type)) {
+				log.info("skip {}. 7z in archive isn't supported", name);
+				return;
+			} else {
+				TikaParserRegistry registry = TikaTextExtractor.getRegistry();
+				Metadata metadata = new Metadata();
+				metadata.set(Metadata.RESOURCE_NAME_KEY, name);
+				metadata.set(Metadata.CONTENT_TYPE, type.toString());
+				registry.getParser(type).parse(TikaInputStream.get(data, metadata), new StreamingContentHandler(out),
+						metadata, registry.createContext(true));
+			}
+			out.write('\n');
+		} catch (SAXException | TikaException | IOException | RuntimeException e) {
+			// stop by writer isn't a broken entry
+			TikaTextExtractor.rethrowIfStopped(e);
+			log.warn("skip broken entry {} : {}", name, e.toString());
+		}
+	}
+
+	/**
+	 * Write entry to a temporary file and extract it with extractor. Documents which extractor reads from the file
+	 * (e.g. attachments of PDF) are one level deeper than entry.
+	 */
+	private void extractFile(String name, byte[] data, MediaType type, Extractor extractor, int depth, Writer out)
+			throws IOException {
+		int dot = name.lastIndexOf('.');
+		String suffix = dot >= 0 && name.length() - dot <= 8 ? name.substring(dot).replaceAll("[^.\\w]", "_") : null;
+		File file = File.createTempFile("jsearch-entry-", suffix);
+		Integer previous = FILE_DEPTH.get();
+		try {
+			Files.write(file.toPath(), data);
+			FILE_DEPTH.set(depth + 1);
+			if (extractor.isStreaming()) {
+				extractor.extract(file, type, out);
+			} else {
+				// extractor doesn't expect ExtractionStoppedException
+				StringWriter text = new StringWriter();
+				extractor.extract(file, type, text);
+				out.write(text.toString());
+			}
+		} finally {
+			if (previous == null)
+				FILE_DEPTH.remove();
+			else
+				FILE_DEPTH.set(previous);
+			if (!file.delete())
+				log.warn("Can't delete {}", file);
+		}
+	}
+
+	/**
+	 * Extract a document which is read from another document (e.g. an attachment of PDF) on a current thread, like
+	 * an entry of archive. A broken document is skipped. If the other document is an entry, depth of it is counted.
+	 *
+	 * @param name name of document. it is used for type detection
+	 * @param data contents of document. if null, nothing is written
+	 * @param writer a destination of text
+	 * @throws ExtractionStoppedException if writer stops extraction
+	 */
+	void extractEmbedded(String name, byte[] data, Writer writer) throws IOException {
+		Integer depth = FILE_DEPTH.get();
+		if (depth != null && depth >= maxDepth) {
+			log.info("skip {}. too deep container", name);
+			return;
+		}
+		extractEntry(name, data, depth == null ? 0 : depth, writer);
+	}
+
+	/**
+	 * @return contents of entry. null if it is larger than maxEntrySize
+	 */
+	byte[] read(String name, InputStream input) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8 * 1024];
+		int read;
+		while ((read = input.read(buffer)) != -1) {
+			if (output.size() + read > maxEntrySize) {
+				log.info("skip {}. larger than {} bytes", name, maxEntrySize);
+				return null;
+			}
+			output.write(buffer, 0, read);
+		}
+		return output.toByteArray();
+	}
+
+	/**
+	 * Entries of a file. Results are written in order of submit(). Text which is written to a pipeline (body of a
+	 * document) is kept after pending entries. Entries are extracted in parallel at the top level only.
+	 */
+	private class Pipeline extends Writer {
+		private final Writer writer;
+		private final int depth;
+		private final Deque<Future<String>> pending = new ArrayDeque<Future<String>>();
+		private final StringBuilder tail = new StringBuilder();
+		private int count = 0;
+
+		private Pipeline(Writer writer, int depth) {
+			this.writer = writer;
+			this.depth = depth;
+		}
+
+		/**
+		 * check limits before reading entry
+		 *
+		 * @param size size of entry. -1 if unknown
+		 */
+		private boolean accept(String name, long size) {
+			if (count >= maxEntries) {
+				if (count++ == maxEntries)
+					log.info("skip entries after {}", maxEntries);
+				return false;
+			}
+			count++;
+			if (size > maxEntrySize) {
+				log.info("skip {}. larger than {} bytes", name, maxEntrySize);
+				return false;
+			}
+			return true;
+		}
+
+		private void submit(final String name, final byte[] data) throws IOException {
+			if (data == null)
+				return;
+			if (executor == null || depth > 0) {
+				extractEntry(name, data, depth, this);
+				return;
+			}
+
+			if (tail.length() > 0) {
+				pending.add(done(tail.toString()));
+				tail.setLength(0);
+			}
+			pending.add(executor.submit(new Callable<String>() {
+				@Override
+				public String call() throws IOException {
+					StringWriter out = new StringWriter();
+					extractEntry(name, data, depth, out);
+					return out.toString();
+				}
+			}));
+			// memory of entries is limited
+			while (pending.size() > maxPending)
+				writer.write(getResult(pending.poll()));
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			while (!pending.isEmpty() && pending.peek().isDone())
+				writer.write(getResult(pending.poll()));
+			if (pending.isEmpty() && tail.length() > 0) {
+				writer.write(tail.toString());
+				tail.setLength(0);
+			}
+			if (pending.isEmpty())
+				writer.write(cbuf, off, len);
+			else
+				tail.append(cbuf, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			writer.flush();
+		}
+
+		@Override
+		public void close() {
+			// writer is closed by a caller
+		}
+
+		private void finish() throws IOException {
+			while (!pending.isEmpty())
+				writer.write(getResult(pending.poll()));
+			writer.write(tail.toString());
+			tail.setLength(0);
+		}
+
+		private void cancel() {
+			for (Future<String> future : pending)
+				future.cancel(true);
+			pending.clear();
+		}
+	}
+
+	private static Future<String> done(final String text) {
+		FutureTask<String> future = new FutureTask<String>(new Callable<String>() {
+			@Override
+			public String call() {
+				return text;
+			}
+		});
+		future.run();
+		return future;
+	}
+
+	private static String getResult(Future<String> result) throws IOException {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * loaded at first use
+	 */
+	private static class DefaultHolder {
+		static final ContainerExtractor extractor = new ContainerExtractor(
+				Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+					private int count = 0;
+
+					@Override
+					public synchronized Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "container-extractor-" + count++);
+						thread.setDaemon(true);
+						return thread;
+					}
+				}));
+	}
+}
@@ -0,0 +1,219 @@
+package io.github.qwefgh90.jsearch.extractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.mime.MediaType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+import io.github.qwefgh90.jsearch.extractor.hwp.HwpTextExtractorWrapper;
+import io.github.qwefgh90.jsearch.extractor.hwp.HwpxTextExtractor;
+
+/**
+ * Extractors of JSearch as {@link Extractor} plugins. Their priority is {@link Extractor#DEFAULT_PRIORITY}. <br>
+ * Tika handles every type which other extractors don't support. Metadata is read by Tika except HWP, HWPX and text.
+ *
+ * @author Chang
+ */
+public final class DefaultExtractors {
+	protected static Logger log = LoggerFactory.getLogger(DefaultExtractors.class);
+
+	private DefaultExtractors() {
+	}
+
+	/**
+	 * @return new default extractors
+	 */
+	public static List<Extractor> getExtractors() {
+		return Arrays.<Extractor> asList(new Hwp(), new Hwpx(), new Container(), new Pdf(), new Spreadsheet(),
+				new PlainText(), new Tika());
+	}
+
+	private static Set<MediaType> types(String... types) {
+		Set<MediaType> set = new HashSet<MediaType>();
+		for (String type : types)
+			set.add(MediaType.parse(type));
+		return Collections.unmodifiableSet(set);
+	}
+
+	/**
+	 * base of default extractors which write text while reading
+	 */
+	private abstract static class Default implements MetadataExtractor {
+		private final Set<MediaType> types;
+
+		private Default(Set<MediaType> types) {
+			this.types = types;
+		}
+
+		@Override
+		public Set<MediaType> getSupportedTypes() {
+			return types;
+		}
+
+		@Override
+		public int getPriority() {
+			return DEFAULT_PRIORITY;
+		}
+
+		@Override
+		public boolean isStreaming() {
+			return true;
+		}
+
+		/**
+		 * @throws IllegalStateException if Tika can't parse file
+		 */
+		@Override
+		public DocumentMetadata extractMetadata(File file, MediaType type) throws IOException {
+			try {
+				return TikaTextExtractor.extractMetadata(file, type);
+			} catch (SAXException | TikaException e) {
+				log.error(e.toString());
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * HWP 3.0 and 5.0 with {@link HwpTextExtractorWrapper}. A file which isn't HWP (e.g. a misnamed *.hwp) has no
+	 * text, so a scan of directory isn't stopped by it.
+	 */
+	public static class Hwp extends Default {
+		public Hwp() {
+			super(types("application/x-hwp", "application/x-hwp-v5"));
+		}
+
+		@Override
+		public void extract(File file, MediaType type, Writer writer) throws IOException {
+			if (!new HwpTextExtractorWrapper().extract(file, writer))
+				log.debug("not a HWP document : {}", file);
+		}
+
+		@Override
+		public DocumentMetadata extractMetadata(File file, MediaType type) throws IOException {
+			return new HwpTextExtractorWrapper().getMetadata(file);
+		}
+	}
+
+	/**
+	 * HWPX with {@link HwpxTextExtractor}. A file which isn't HWPX has no text.
+	 */
+	public static class Hwpx extends Default {
+		public Hwpx() {
+			super(types("application/hwp+zip"));
+		}
+
+		@Override
+		public void extract(File file, MediaType type, Writer writer) throws IOException {
+			if (!HwpxTextExtractor.extract(file, writer))
+				log.debug("not a HWPX document : {}", file);
+		}
+
+		@Override
+		public DocumentMetadata extractMetadata(File file, MediaType type) throws IOException {
+			return HwpxTextExtractor.extractMetadata(file);
+		}
+	}
+
+	/**
+	 * ZIP, 7z, tar and Word/PowerPoint documents (with embedded documents) with
+	 * {@link ContainerExtractor#getDefault()}
+	 */
+	public static class Container extends Default {
+		public Container() {
+			super(types("application/zip", "application/x-7z-compressed", "application/x-tar", "application/msword",
+					"application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+					"application/vnd.ms-word.document.macroenabled.12", "application/vnd.ms-powerpoint",
+					"application/vnd.openxmlformats-officedocument.presentationml.presentation",
+					"application/vnd.ms-powerpoint.presentation.macroenabled.12"));
+		}
+
+		@Override
+		public void extract(File file, MediaType type, Writer writer) throws IOException {
+			ContainerExtractor.getDefault().extract(file, type, writer);
+		}
+	}
+
+	/**
+	 * PDF with {@link PdfTextExtractor#getDefault()}
+	 */
+	public static class Pdf extends Default {
+		public Pdf() {
+			super(types("application/pdf"));
+		}
+
+		@Override
+		public void extract(File file, MediaType type, Writer writer) throws IOException {
+			PdfTextExtractor.getDefault().extract(file, writer);
+		}
+	}
+
+	/**
+	 * XLSX, XLSM and XLS with {@link SpreadsheetExtractor}
+	 */
+	public static class Spreadsheet extends Default {
+		public Spreadsheet() {
+			super(types("application/vnd.ms-excel", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+					"application/vnd.ms-excel.sheet.macroenabled.12"));
+		}
+
+		@Override
+		public void extract(File file, MediaType type, Writer writer) throws IOException {
+			new SpreadsheetExtractor().extract(file, type, writer);
+		}
+	}
+
+	/**
+	 * text with {@link PlainTextExtractor}
+	 */
+	public static class PlainText extends Default {
+		public PlainText() {
+			super(types("text/plain"));
+		}
+
+		@Override
+		public void extract(File file, MediaType type, Writer writer) throws IOException {
+			PlainTextExtractor.extract(file, writer);
+		}
+
+		/**
+		 * @return null. text has no metadata
+		 */
+		@Override
+		public DocumentMetadata extractMetadata(File file, MediaType type) {
+			return null;
+		}
+	}
+
+	/**
+	 * every other type with {@link TikaTextExtractor}
+	 */
+	public static class Tika extends Default {
+		public Tika() {
+			super(Collections.singleton(MediaType.OCTET_STREAM));
+		}
+
+		/**
+		 * @throws IllegalStateException if Tika can't parse file
+		 */
+		@Override
+		public void extract(File file, MediaType type, Writer writer) throws IOException {
+			try {
+				TikaTextExtractor.extract(file, type, writer);
+			} catch (SAXException | TikaException e) {
+				log.error(e.toString());
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
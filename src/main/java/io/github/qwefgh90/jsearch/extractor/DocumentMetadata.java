@@ -0,0 +1,151 @@
+package io.github.qwefgh90.jsearch.extractor;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Metadata of document which is read without extracting body text. <br>
+ * A property which document doesn't have is null.
+ *
+ * @author Chang
+ */
+public class DocumentMetadata {
+	private String contentType;
+	private String title;
+	private String subject;
+	private String author;
+	private String keywords;
+	private String comments;
+	private String lastAuthor;
+	private Date created;
+	private Date modified;
+	private Integer pageCount;
+	private final Map<String, String> properties = new LinkedHashMap<String, String>();
+
+	/**
+	 * @return detected mime type
+	 */
+	public String getContentType() {
+		return contentType;
+	}
+
+	public void setContentType(String contentType) {
+		this.contentType = contentType;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = normalize(title);
+	}
+
+	public String getSubject() {
+		return subject;
+	}
+
+	public void setSubject(String subject) {
+		this.subject = normalize(subject);
+	}
+
+	public String getAuthor() {
+		return author;
+	}
+
+	public void setAuthor(String author) {
+		this.author = normalize(author);
+	}
+
+	public String getKeywords() {
+		return keywords;
+	}
+
+	public void setKeywords(String keywords) {
+		this.keywords = normalize(keywords);
+	}
+
+	public String getComments() {
+		return comments;
+	}
+
+	public void setComments(String comments) {
+		this.comments = normalize(comments);
+	}
+
+	/**
+	 * @return a person who saved document last
+	 */
+	public String getLastAuthor() {
+		return lastAuthor;
+	}
+
+	public void setLastAuthor(String lastAuthor) {
+		this.lastAuthor = normalize(lastAuthor);
+	}
+
+	/**
+	 * @return creation time
+	 */
+	public Date getCreated() {
+		return created;
+	}
+
+	public void setCreated(Date created) {
+		this.created = created;
+	}
+
+	/**
+	 * @return last modification (save) time
+	 */
+	public Date getModified() {
+		return modified;
+	}
+
+	public void setModified(Date modified) {
+		this.modified = modified;
+	}
+
+	public Integer getPageCount() {
+		return pageCount;
+	}
+
+	public void setPageCount(Integer pageCount) {
+		this.pageCount = pageCount;
+	}
+
+	/**
+	 * @return other properties of document (format-specific names)
+	 */
+	public Map<String, String> getProperties() {
+		return Collections.unmodifiableMap(properties);
+	}
+
+	public void setProperty(String name, String value) {
+		value = normalize(value);
+		if (value == null)
+			properties.remove(name);
+		else
+			properties.put(name, value);
+	}
+
+	/**
+	 * @return a trimmed string. null if it is empty
+	 */
+	private static String normalize(String value) {
+		if (value == null)
+			return null;
+		value = value.trim();
+		return value.length() == 0 ? null : value;
+	}
+
+	@Override
+	public String toString() {
+		return "DocumentMetadata [contentType=" + contentType + ", title=" + title + ", subject=" + subject
+				+ ", author=" + author + ", keywords=" + keywords + ", comments=" + comments + ", lastAuthor="
+				+ lastAuthor + ", created=" + created + ", modified=" + modified + ", pageCount=" + pageCount
+				+ ", properties=" + properties + "]";
+	}
+}
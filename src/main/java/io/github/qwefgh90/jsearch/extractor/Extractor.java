@@ -0,0 +1,67 @@
+package io.github.qwefgh90.jsearch.extractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+import org.apache.tika.mime.MediaType;
+
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
+
+/**
+ * A service provider which extracts text of documents. <br>
+ * <br>
+ * An implementation declares mime types which it supports and its priority. If several extractors support a type,
+ * an extractor whose priority is the highest is used. {@link MediaType#OCTET_STREAM} means every type which no
+ * extractor supports. <br>
+ * <br>
+ * Implementations are found with {@link java.util.ServiceLoader}. List class names in
+ * <code>META-INF/services/io.github.qwefgh90.jsearch.extractor.Extractor</code>. An implementation must have a public
+ * default constructor and be thread-safe. <br>
+ * <br>
+ * <strong>process</strong>
+ * <ol>
+ * <li>implement and list a class in META-INF/services (or call {@link ExtractorRegistry#register(Extractor)})</li>
+ * <li>JSearch calls extract() for supported types. entries of archives and embedded documents are given as
+ * temporary files by {@link ContainerExtractor}</li>
+ * </ol>
+ *
+ * @author Chang
+ * @see ExtractorRegistry
+ * @see MetadataExtractor
+ */
+public interface Extractor {
+	/**
+	 * priority of extractors in JSearch
+	 */
+	int DEFAULT_PRIORITY = 0;
+
+	/**
+	 * @return base mime types (without parameters) which this extractor supports
+	 */
+	Set<MediaType> getSupportedTypes();
+
+	/**
+	 * @return priority. an extractor whose priority is higher than {@link #DEFAULT_PRIORITY} replaces default one
+	 */
+	int getPriority();
+
+	/**
+	 * @return true if text is written to writer while a document is read. if false, JSearch extracts whole text
+	 *         before it is searched, so search doesn't stop early and extract() never sees
+	 *         {@link ExtractionStoppedException}
+	 */
+	boolean isStreaming();
+
+	/**
+	 * Extract text of file to writer.
+	 *
+	 * @param file target file
+	 * @param type mime type of file which is already detected
+	 * @param writer a destination of text
+	 * @throws IOException a problem of file. refer to a message.
+	 * @throws ExtractionStoppedException if writer stops extraction
+	 */
+	void extract(File file, MediaType type, Writer writer) throws IOException;
+}
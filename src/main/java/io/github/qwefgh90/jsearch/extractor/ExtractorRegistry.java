@@ -0,0 +1,147 @@
+package io.github.qwefgh90.jsearch.extractor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import org.apache.tika.mime.MediaType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A routing table from mime types to extractors. <br>
+ * <br>
+ * A table is computed when an extractor is registered, so a lookup is a hash lookup of a base type. A type which no
+ * extractor supports is routed to an extractor of {@link MediaType#OCTET_STREAM}. <br>
+ * <br>
+ * The default registry contains extractors of JSearch ({@link DefaultExtractors}) and extractors which are found with
+ * {@link ServiceLoader}. <br>
+ * <br>
+ * <strong>process</strong>
+ * <ol>
+ * <li>getDefault() or create and register() (unregister() to remove)</li>
+ * <li>call getExtractor() with a detected type</li>
+ * </ol>
+ *
+ * @author Chang
+ */
+public class ExtractorRegistry {
+	protected static Logger log = LoggerFactory.getLogger(ExtractorRegistry.class);
+
+	private final List<Extractor> extractors = new ArrayList<Extractor>();
+	private volatile Map<MediaType, Extractor> table = Collections.emptyMap();
+
+	/**
+	 * @return a registry of default extractors and extractors in class path
+	 */
+	public static ExtractorRegistry getDefault() {
+		return DefaultHolder.registry;
+	}
+
+	/**
+	 * Add an extractor. For each supported type, an extractor whose priority is the highest is used. If priorities
+	 * are same, an extractor which is registered first is used.
+	 *
+	 * @param extractor an extractor
+	 * @return this registry
+	 */
+	public synchronized ExtractorRegistry register(Extractor extractor) {
+		if (extractor == null)
+			throw new NullPointerException("Please input extractor.");
+		extractors.add(extractor);
+
+		Map<MediaType, Extractor> next = new HashMap<MediaType, Extractor>(table);
+		route(next, extractor);
+		table = next;
+		return this;
+	}
+
+	/**
+	 * Remove an extractor. Its types are routed to other extractors again.
+	 *
+	 * @param extractor an extractor which is registered
+	 * @return this registry
+	 */
+	public synchronized ExtractorRegistry unregister(Extractor extractor) {
+		for (Iterator<Extractor> iterator = extractors.iterator(); iterator.hasNext();) {
+			if (iterator.next() == extractor) {
+				iterator.remove();
+				break;
+			}
+		}
+
+		Map<MediaType, Extractor> next = new HashMap<MediaType, Extractor>();
+		for (Extractor registered : extractors)
+			route(next, registered);
+		table = next;
+		return this;
+	}
+
+	private static void route(Map<MediaType, Extractor> table, Extractor extractor) {
+		for (MediaType type : extractor.getSupportedTypes()) {
+			MediaType base = type.getBaseType();
+			Extractor current = table.get(base);
+			if (current == null || current.getPriority() < extractor.getPriority())
+				table.put(base, extractor);
+		}
+	}
+
+	/**
+	 * Register extractors which are listed in <code>META-INF/services</code> of class path.
+	 *
+	 * @param loader a class loader to find extractors
+	 * @return this registry
+	 */
+	public ExtractorRegistry loadServices(ClassLoader loader) {
+		Iterator<Extractor> iterator = ServiceLoader.load(Extractor.class, loader).iterator();
+		while (true) {
+			try {
+				if (!iterator.hasNext())
+					break;
+				Extractor extractor = iterator.next();
+				log.debug("found extractor {}", extractor.getClass().getName());
+				register(extractor);
+			} catch (ServiceConfigurationError e) {
+				log.warn("Can't load extractor", e);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * @param type mime type which is detected
+	 * @return an extractor of type. null if no extractor supports it and there isn't an extractor of
+	 *         {@link MediaType#OCTET_STREAM}
+	 */
+	public Extractor getExtractor(MediaType type) {
+		Map<MediaType, Extractor> current = table;
+		Extractor extractor = current.get(type.getBaseType());
+		return extractor != null ? extractor : current.get(MediaType.OCTET_STREAM);
+	}
+
+	/**
+	 * @return registered extractors in order
+	 */
+	public synchronized List<Extractor> getExtractors() {
+		return Collections.unmodifiableList(new ArrayList<Extractor>(extractors));
+	}
+
+	/**
+	 * loaded at first use
+	 */
+	private static class DefaultHolder {
+		static final ExtractorRegistry registry = createDefault();
+
+		private static ExtractorRegistry createDefault() {
+			ExtractorRegistry registry = new ExtractorRegistry();
+			for (Extractor extractor : DefaultExtractors.getExtractors())
+				registry.register(extractor);
+			return registry.loadServices(ExtractorRegistry.class.getClassLoader());
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package io.github.qwefgh90.jsearch.extractor;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.tika.mime.MediaType;
+
+/**
+ * An {@link Extractor} which also reads metadata of documents. <br>
+ * <br>
+ * JSearch.extractMetadataFromFile() uses an extractor of a type in {@link ExtractorRegistry}. If it doesn't implement
+ * this interface, metadata is read by Tika.
+ *
+ * @author Chang
+ */
+public interface MetadataExtractor extends Extractor {
+	/**
+	 * Read metadata without extracting body text.
+	 *
+	 * @param file target file
+	 * @param type mime type of file which is already detected
+	 * @return metadata. null if file has no metadata
+	 * @throws IOException a problem of file. refer to a message.
+	 */
+	DocumentMetadata extractMetadata(File file, MediaType type) throws IOException;
+}
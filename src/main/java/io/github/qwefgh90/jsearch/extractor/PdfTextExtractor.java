@@ -0,0 +1,490 @@
+package io.github.qwefgh90.jsearch.extractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentNameDictionary;
+import org.apache.pdfbox.pdmodel.common.PDNameTreeNode;
+import org.apache.pdfbox.pdmodel.common.filespecification.PDComplexFileSpecification;
+import org.apache.pdfbox.pdmodel.common.filespecification.PDEmbeddedFile;
+import org.apache.pdfbox.pdmodel.common.filespecification.PDFileSpecification;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationFileAttachment;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationMarkup;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDField;
+import org.apache.pdfbox.pdmodel.interactive.form.PDTerminalField;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
+import io.github.qwefgh90.jsearch.algorithm.QS;
+
+/**
+ * Extract text of PDF by ranges of pages with PDFBox. <br>
+ * <br>
+ * PDDocument isn't thread-safe, so each worker loads its own read-only view of a file and reuses it for next
+ * ranges. Text of ranges is written in page order. A few ranges are kept in memory at most. If writer throws
+ * {@link ExtractionStoppedException} (e.g. a keyword is found), pending ranges are cancelled. <br>
+ * <br>
+ * Like PDFParser of Tika, text of annotations (comments, notes) follows text of each page and values of AcroForm
+ * fields follow the last page. Attached files (file attachment annotations and the EmbeddedFiles name tree) are
+ * extracted like entries of archive with {@link ContainerExtractor#getDefault()} after text of their range, so a
+ * keyword in an attached document is found. findPages() doesn't search attachments. <br>
+ * <br>
+ * <strong>process</strong>
+ * <ol>
+ * <li>create with executor (optional) or call getDefault()</li>
+ * <li>call extract() or findPages()</li>
+ * </ol>
+ *
+ * @author Chang
+ */
+public class PdfTextExtractor {
+	protected static Logger log = LoggerFactory.getLogger(PdfTextExtractor.class);
+
+	public static final int DEFAULT_PAGES_PER_TASK = 8;
+
+	private final ExecutorService executor;
+	private final int maxPending;
+	private int pagesPerTask = DEFAULT_PAGES_PER_TASK;
+
+	/**
+	 * Extract pages in order on a current thread.
+	 */
+	public PdfTextExtractor() {
+		this(null);
+	}
+
+	/**
+	 * @param executor a pool which extracts ranges of pages in parallel. if null, pages are extracted in order.
+	 *            executor isn't shut down by this class
+	 */
+	public PdfTextExtractor(ExecutorService executor) {
+		this.executor = executor;
+		this.maxPending = Runtime.getRuntime().availableProcessors() * 2;
+	}
+
+	/**
+	 * @return an extractor with a shared pool of daemon threads (one per processor)
+	 */
+	public static PdfTextExtractor getDefault() {
+		return DefaultHolder.extractor;
+	}
+
+	/**
+	 * @param pagesPerTask a count of pages which a worker extracts at once
+	 */
+	public void setPagesPerTask(int pagesPerTask) {
+		if (pagesPerTask < 1)
+			throw new IllegalArgumentException("pagesPerTask must be positive.");
+		this.pagesPerTask = pagesPerTask;
+	}
+
+	public int getPagesPerTask() {
+		return pagesPerTask;
+	}
+
+	/**
+	 * @param file pdf file
+	 * @return extracted text
+	 * @throws IOException a problem of file. refer to a message.
+	 */
+	public String extract(File file) throws IOException {
+		StringWriter writer = new StringWriter();
+		extract(file, writer);
+		return writer.toString();
+	}
+
+	/**
+	 * Extract text to writer in page order.
+	 *
+	 * @param file pdf file
+	 * @param writer a destination of text
+	 * @throws IOException a problem of file. refer to a message.
+	 * @throws ExtractionStoppedException if writer stops extraction
+	 */
+	public void extract(File file, final Writer writer) throws IOException {
+		run(file, new RangeHandler<RangeText>() {
+			@Override
+			public RangeText process(PDDocument document, int start, int end) throws IOException {
+				RangeText range = new RangeText();
+				StringBuilder text = new StringBuilder();
+				PDFTextStripper stripper = new PDFTextStripper();
+				for (int page = start; page <= end; page++) {
+					stripper.setStartPage(page);
+					stripper.setEndPage(page);
+					text.append(stripper.getText(document));
+					appendAnnotations(document, page, text, null);
+					addAttachments(document, page, range);
+				}
+				if (end == document.getNumberOfPages()) {
+					appendFields(document, null, text);
+					addEmbeddedFiles(document, range);
+				}
+				range.text = text.toString();
+				return range;
+			}
+
+			@Override
+			public void accept(RangeText range) throws IOException {
+				writer.write(range.text);
+				// attachments are extracted on a current thread, so workers never wait for another pool
+				ContainerExtractor container = ContainerExtractor.getDefault();
+				for (int i = 0; i < range.names.size(); i++)
+					container.extractEmbedded(range.names.get(i), range.files.get(i), writer);
+			}
+		});
+		writer.flush();
+	}
+
+	/**
+	 * Find pages which contain a pattern. A match across pages isn't found. A value of AcroForm field belongs to a
+	 * page of its widget.
+	 *
+	 * @param file pdf file
+	 * @param pattern compiled pattern
+	 * @return page numbers (1-based) in order
+	 * @throws IOException a problem of file. refer to a message.
+	 */
+	public List<Integer> findPages(File file, final QS pattern) throws IOException {
+		final List<Integer> pages = new ArrayList<Integer>();
+		run(file, new RangeHandler<List<Integer>>() {
+			@Override
+			public List<Integer> process(PDDocument document, int start, int end) throws IOException {
+				List<Integer> found = new ArrayList<Integer>();
+				PDFTextStripper stripper = new PDFTextStripper();
+				for (int page = start; page <= end; page++) {
+					stripper.setStartPage(page);
+					stripper.setEndPage(page);
+					StringBuilder text = new StringBuilder(stripper.getText(document));
+					Set<COSBase> widgets = new HashSet<COSBase>();
+					appendAnnotations(document, page, text, widgets);
+					appendFields(document, widgets, text);
+					if (pattern.isExist(text.toString()))
+						found.add(page);
+				}
+				return found;
+			}
+
+			@Override
+			public void accept(List<Integer> found) {
+				pages.addAll(found);
+			}
+		});
+		return pages;
+	}
+
+	/**
+	 * Split pages into ranges and process them on executor (or a current thread). Results are accepted in order on a
+	 * current thread.
+	 */
+	private <T> void run(File file, final RangeHandler<T> handler) throws IOException {
+		final Views views = new Views(file);
+		Deque<Future<T>> pending = new ArrayDeque<Future<T>>();
+		try {
+			PDDocument first = views.take();
+			int pages = first.getNumberOfPages();
+			if (executor == null || pages <= pagesPerTask) {
+				try {
+					for (int start = 1; start <= pages; start += pagesPerTask)
+						handler.accept(handler.process(first, start, Math.min(start + pagesPerTask - 1, pages)));
+				} finally {
+					views.release(first);
+				}
+				return;
+			}
+			views.release(first);
+
+			for (int start = 1; start <= pages; start += pagesPerTask) {
+				final int from = start;
+				final int to = Math.min(start + pagesPerTask - 1, pages);
+				pending.add(executor.submit(new Callable<T>() {
+					@Override
+					public T call() throws IOException {
+						PDDocument document = views.take();
+						try {
+							return handler.process(document, from, to);
+						} finally {
+							views.release(document);
+						}
+					}
+				}));
+				// memory of text is limited
+				while (pending.size() > maxPending)
+					handler.accept(getResult(pending.poll()));
+			}
+			while (!pending.isEmpty())
+				handler.accept(getResult(pending.poll()));
+		} finally {
+			for (Future<T> future : pending)
+				future.cancel(true);
+			views.close();
+		}
+	}
+
+	/**
+	 * Append title, subject and contents of annotations of page. Widgets (fields) and links are skipped.
+	 *
+	 * @param widgets if not null, widgets of page are added
+	 */
+	private static void appendAnnotations(PDDocument document, int page, StringBuilder text, Set<COSBase> widgets)
+			throws IOException {
+		for (PDAnnotation annotation : document.getPage(page - 1).getAnnotations()) {
+			if (annotation instanceof PDAnnotationWidget) {
+				if (widgets != null)
+					widgets.add(annotation.getCOSObject());
+				continue;
+			}
+			if (annotation instanceof PDAnnotationLink)
+				continue;
+			if (annotation instanceof PDAnnotationMarkup) {
+				appendLine(text, ((PDAnnotationMarkup) annotation).getTitlePopup());
+				appendLine(text, ((PDAnnotationMarkup) annotation).getSubject());
+			}
+			appendLine(text, annotation.getContents());
+		}
+	}
+
+	/**
+	 * Append "name: value" of AcroForm fields which have a value.
+	 *
+	 * @param widgets if not null, only fields which have one of widgets are appended
+	 */
+	private static void appendFields(PDDocument document, Set<COSBase> widgets, StringBuilder text) {
+		PDAcroForm form = document.getDocumentCatalog().getAcroForm();
+		if (form == null || (widgets != null && widgets.isEmpty()))
+			return;
+		for (PDField field : form.getFieldTree()) {
+			if (!(field instanceof PDTerminalField))
+				continue;
+			String value = field.getValueAsString();
+			if (value == null || value.isEmpty())
+				continue;
+			if (widgets != null && !hasWidget(field, widgets))
+				continue;
+			text.append(field.getPartialName()).append(": ").append(value).append('\n');
+		}
+	}
+
+	/**
+	 * Add files of file attachment annotations of page.
+	 */
+	private static void addAttachments(PDDocument document, int page, RangeText range) throws IOException {
+		for (PDAnnotation annotation : document.getPage(page - 1).getAnnotations())
+			if (annotation instanceof PDAnnotationFileAttachment)
+				addFile(((PDAnnotationFileAttachment) annotation).getFile(), null, range);
+	}
+
+	/**
+	 * Add files of EmbeddedFiles name tree of document. A tree is walked without recursion and a node is visited
+	 * once.
+	 */
+	private static void addEmbeddedFiles(PDDocument document, RangeText range) throws IOException {
+		PDDocumentNameDictionary names = document.getDocumentCatalog().getNames();
+		if (names == null || names.getEmbeddedFiles() == null)
+			return;
+		Set<COSBase> visited = new HashSet<COSBase>();
+		Deque<PDNameTreeNode<PDComplexFileSpecification>> nodes =
+				new ArrayDeque<PDNameTreeNode<PDComplexFileSpecification>>();
+		nodes.push(names.getEmbeddedFiles());
+		while (!nodes.isEmpty()) {
+			PDNameTreeNode<PDComplexFileSpecification> node = nodes.pop();
+			if (!visited.add(node.getCOSObject()))
+				continue;
+			Map<String, PDComplexFileSpecification> files = node.getNames();
+			if (files != null)
+				for (Map.Entry<String, PDComplexFileSpecification> file : files.entrySet())
+					addFile(file.getValue(), file.getKey(), range);
+			List<PDNameTreeNode<PDComplexFileSpecification>> kids = node.getKids();
+			if (kids != null)
+				for (int i = kids.size() - 1; i >= 0; i--)
+					nodes.push(kids.get(i));
+		}
+	}
+
+	/**
+	 * Read an embedded file of specification. A file which is larger than a limit of {@link ContainerExtractor} or
+	 * broken is skipped.
+	 *
+	 * @param key a name in name tree. null if it isn't in a tree
+	 */
+	private static void addFile(PDFileSpecification specification, String key, RangeText range) {
+		if (!(specification instanceof PDComplexFileSpecification))
+			return;
+		PDComplexFileSpecification complex = (PDComplexFileSpecification) specification;
+		PDEmbeddedFile file = complex.getEmbeddedFileUnicode();
+		if (file == null)
+			file = complex.getEmbeddedFile();
+		if (file == null)
+			file = complex.getEmbeddedFileDos();
+		if (file == null)
+			file = complex.getEmbeddedFileMac();
+		if (file == null)
+			file = complex.getEmbeddedFileUnix();
+		if (file == null)
+			return;
+
+		String name = complex.getFilename();
+		if (name == null)
+			name = key != null ? key : "attachment-" + range.names.size();
+		try (InputStream input = file.createInputStream()) {
+			byte[] data = ContainerExtractor.getDefault().read(name, input);
+			if (data != null) {
+				range.names.add(name);
+				range.files.add(data);
+			}
+		} catch (IOException e) {
+			log.warn("skip broken attachment {} : {}", name, e.toString());
+		}
+	}
+
+	private static boolean hasWidget(PDField field, Set<COSBase> widgets) {
+		for (PDAnnotationWidget widget : field.getWidgets())
+			if (widgets.contains(widget.getCOSObject()))
+				return true;
+		return false;
+	}
+
+	private static void appendLine(StringBuilder text, String line) {
+		if (line != null && !line.isEmpty())
+			text.append(line).append('\n');
+	}
+
+	private static <T> T getResult(Future<T> result) throws IOException {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Text of a range and files which are attached to it. Files are extracted after text of a range.
+	 */
+	private static class RangeText {
+		private String text;
+		private final List<String> names = new ArrayList<String>();
+		private final List<byte[]> files = new ArrayList<byte[]>();
+	}
+
+	private interface RangeHandler<T> {
+		/**
+		 * called on a worker
+		 */
+		T process(PDDocument document, int start, int end) throws IOException;
+
+		/**
+		 * called on a current thread in page order
+		 */
+		void accept(T result) throws IOException;
+	}
+
+	/**
+	 * Documents of a file. A document is used by one worker at a time. Documents which are in use when views are
+	 * closed are closed when they are released.
+	 */
+	private static class Views {
+		private final File file;
+		private final Deque<PDDocument> idle = new ArrayDeque<PDDocument>();
+		private boolean closed = false;
+
+		private Views(File file) {
+			this.file = file;
+		}
+
+		private PDDocument take() throws IOException {
+			synchronized (this) {
+				if (closed)
+					throw new IOException("Document is closed.");
+				if (!idle.isEmpty())
+					return idle.pop();
+			}
+			// load outside of lock so that workers load views concurrently
+			PDDocument document = PDDocument.load(file, MemoryUsageSetting.setupMainMemoryOnly());
+			synchronized (this) {
+				if (!closed)
+					return document;
+			}
+			close(document);
+			throw new IOException("Document is closed.");
+		}
+
+		private void release(PDDocument document) {
+			synchronized (this) {
+				if (!closed) {
+					idle.push(document);
+					return;
+				}
+			}
+			close(document);
+		}
+
+		private void close() {
+			List<PDDocument> documents;
+			synchronized (this) {
+				closed = true;
+				documents = new ArrayList<PDDocument>(idle);
+				idle.clear();
+			}
+			for (PDDocument document : documents)
+				close(document);
+		}
+
+		private static void close(PDDocument document) {
+			try {
+				document.close();
+			} catch (IOException e) {
+				log.warn("Can't close document", e);
+			}
+		}
+	}
+
+	/**
+	 * loaded at first use
+	 */
+	private static class DefaultHolder {
+		static final PdfTextExtractor extractor = new PdfTextExtractor(
+				Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+					private int count = 0;
+
+					@Override
+					public synchronized Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "pdf-extractor-" + count++);
+						thread.setDaemon(true);
+						return thread;
+					}
+				}));
+	}
+}
@@ -3,19 +3,31 @@
  */
 package io.github.qwefgh90.jsearch.extractor;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.IllegalCharsetNameException;
+import java.nio.file.StandardOpenOption;
 
-import org.mozilla.universalchardet.UniversalDetector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
+import io.github.qwefgh90.jsearch.algorithm.ByteQS;
+import io.github.qwefgh90.jsearch.algorithm.QS;
+import io.github.qwefgh90.jsearch.algorithm.QSWriter;
+
 /**
  * Plain Text Extractor <br>
  * <br>
@@ -30,6 +42,9 @@ import org.slf4j.LoggerFactory;
 public class PlainTextExtractor {
 	protected static Logger log = LoggerFactory.getLogger(PlainTextExtractor.class);
 
+	private static final int DECODE_BUFFER_SIZE = 8 * 1024;
+	private static final int MAP_WINDOW_SIZE = 64 * 1024 * 1024;
+
 	enum UTF_BOM {
 		UTF_8(0xEF, 0xBB, 0xBF), UTF_16_LITTLE(0xFF, 0xFE), UTF_16_BIG(0xFE, 0xFF);
 
@@ -62,50 +77,203 @@ public class PlainTextExtractor {
 	 * @throws IOException a problem of file. refer to a message.
 	 */
 	public static final String extract(File file) throws IOException {
-		UniversalDetector detector = new UniversalDetector(null);
 		StringWriter writer = new StringWriter();
-		StringBuffer wbuffer = writer.getBuffer();
-
-		byte[] buffer = null;
-		int buffer_len = 0;
-		String detectedCharset = null;
-		wbuffer.setLength(0);
-		// log.info("[TEXT]" + file.getName());
-		try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(file))) {
-			buffer_len = (int) file.length();
-			buffer = new byte[buffer_len];
-			bis.read(buffer);
-			try { /* BOM (Byte Order Mask) */
-				if (UTF_BOM.UTF_8.compare(buffer)) {
-					log.debug("UTF_8_BOM");
-					writer.append(new String(buffer, UTF_BOM.UTF_8.mark.length,
-							buffer.length - UTF_BOM.UTF_8.mark.length, Charset.forName("UTF-8")));
-				} else if (UTF_BOM.UTF_16_LITTLE.compare(buffer)) {
-					log.debug("UTF_16LE_BOM");
-					writer.append(new String(buffer, UTF_BOM.UTF_16_LITTLE.mark.length,
-							buffer.length - UTF_BOM.UTF_16_LITTLE.mark.length, Charset.forName("UTF-16LE")));
-				} else if (UTF_BOM.UTF_16_BIG.compare(buffer)) {
-					log.debug("UTF_16BE_BOM");
-					writer.append(new String(buffer, UTF_BOM.UTF_16_BIG.mark.length,
-							buffer.length - UTF_BOM.UTF_16_BIG.mark.length, Charset.forName("UTF-16BE")));
-				} else { /* NOT BOM (Byte Order Mask) */
-					detector.handleData(buffer, 0, buffer_len);
-					detector.dataEnd();
-					detectedCharset = detector.getDetectedCharset();
-					log.debug("NOT_BOM " + detectedCharset);
-
-					if (detectedCharset != null) { /* detected encoding */
-						writer.append(new String(buffer, Charset.forName(detectedCharset)));
-					} else { /* default encoding */
-						detectedCharset = "UTF-8";
-						writer.append(new String(buffer, Charset.forName(detectedCharset)));
-					}
+		extract(file, writer);
+		return writer.toString();
+	}
+
+	/**
+	 * Extract text in fixed-size chunks and write them to writer incrementally. <br>
+	 * Memory usage doesn't depend on a size of file.
+	 * 
+	 * @param file target file
+	 * @param writer a destination of text
+	 * @throws IOException a problem of file or writer. refer to a message.
+	 */
+	public static final void extract(File file, Writer writer) throws IOException {
+		TextEncoding encoding = detectEncoding(file);
+		log.debug("decode " + encoding.charset);
+		CharsetDecoder decoder = encoding.charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		ByteBuffer in = ByteBuffer.allocate(DECODE_BUFFER_SIZE);
+		CharBuffer out = CharBuffer.allocate(DECODE_BUFFER_SIZE);
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			channel.position(encoding.offset);
+			boolean endOfInput = false;
+			while (!endOfInput) {
+				endOfInput = channel.read(in) == -1;
+				in.flip();
+				while (decoder.decode(in, out, endOfInput).isOverflow())
+					drain(out, writer);
+				in.compact();
+			}
+			while (decoder.flush(out).isOverflow())
+				drain(out, writer);
+			drain(out, writer);
+		}
+	}
+
+	private static void drain(CharBuffer out, Writer writer) throws IOException {
+		out.flip();
+		if (out.hasRemaining())
+			writer.write(out.array(), out.arrayOffset() + out.position(), out.remaining());
+		out.clear();
+	}
+
+	/**
+	 * Find keyword from raw bytes of file without decoding it. <br>
+	 * A keyword is encoded into the detected charset and searched over a memory-mapped file.
+	 * If the charset can't be searched safely in bytes, it falls back to decoding.
+	 * 
+	 * @param file target file
+	 * @param keyword a thing you want to find
+	 * @return whether or not to include keyword
+	 * @throws IOException a problem of file. refer to a message.
+	 */
+	public static final boolean isContainsKeyword(File file, String keyword) throws IOException {
+		TextEncoding encoding = detectEncoding(file);
+		Alignment alignment = Alignment.of(encoding.charset);
+		if (alignment == null) { /* not self-synchronizing multi-byte encoding */
+			QSWriter writer = new QSWriter(QS.compile(keyword), true);
+			try {
+				extract(file, writer);
+				writer.close();
+			} catch (ExtractionStoppedException e) {
+				// found
+			}
+			return writer.isFound();
+		}
+
+		byte[] pattern;
+		try {
+			CharsetEncoder encoder = encoding.charset.newEncoder()
+					.onMalformedInput(CodingErrorAction.REPORT)
+					.onUnmappableCharacter(CodingErrorAction.REPORT);
+			ByteBuffer encoded = encoder.encode(CharBuffer.wrap(keyword));
+			pattern = new byte[encoded.remaining()];
+			encoded.get(pattern);
+		} catch (CharacterCodingException e) {
+			return false; /* decoded text can't contain keyword */
+		}
+		if (pattern.length == 0)
+			return true;
+
+		ByteQS qs = ByteQS.compile(pattern);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			long start = encoding.offset;
+			while (size - start >= pattern.length) {
+				long length = Math.min(size - start, MAP_WINDOW_SIZE);
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+				int limit = (int) length;
+				int from = 0;
+				int found;
+				while ((found = qs.indexOf(buffer, from, limit)) != -1) {
+					if (alignment.isCharBoundary(buffer, encoding.offset - start, found))
+						return true;
+					from = found + 1;
 				}
-			} finally {
-				detector.reset();
+				if (start + length == size)
+					break;
+				/* overlap windows by pattern length, from a char boundary */
+				int next = alignment.floorCharBoundary(buffer, encoding.offset - start,
+						limit - pattern.length + 1);
+				if (next <= 0)
+					throw new IOException("A keyword is too long to search.");
+				start += next;
 			}
 		}
+		return false;
+	}
 
-		return writer.toString();
+	/**
+	 * Detect an encoding of file with {@link TextEncodingDetector#getDefault()}.
+	 * 
+	 * @param file target file
+	 * @return a detected charset and an offset of text
+	 * @throws IOException a problem of file. refer to a message.
+	 */
+	static TextEncoding detectEncoding(File file) throws IOException {
+		return TextEncodingDetector.getDefault().detectEncoding(file);
+	}
+
+	/**
+	 * A charset of text and a position where text starts after a byte order mark.
+	 */
+	static final class TextEncoding {
+		final Charset charset;
+		final int offset;
+
+		TextEncoding(Charset charset, int offset) {
+			this.charset = charset;
+			this.offset = offset;
+		}
+	}
+
+	/**
+	 * Rules to decide whether a byte position is a start of character.
+	 * A byte match which doesn't start at a character boundary is a false match.
+	 */
+	enum Alignment {
+		/** single byte charsets and UTF-8 which is self-synchronizing */
+		ANY {
+			@Override
+			boolean isCharBoundary(ByteBuffer buffer, long base, int position) {
+				return true;
+			}
+		},
+		/** UTF-16LE, UTF-16BE. characters start at even offset from the text */
+		TWO_BYTES {
+			@Override
+			boolean isCharBoundary(ByteBuffer buffer, long base, int position) {
+				return ((position - base) & 1) == 0;
+			}
+		},
+		/**
+		 * EUC-KR, GB2312. a lead byte and a trail byte are both over 0x7F.
+		 * count high bytes since the last ASCII byte.
+		 */
+		DOUBLE_BYTES {
+			@Override
+			boolean isCharBoundary(ByteBuffer buffer, long base, int position) {
+				int i = position - 1;
+				int lowest = (int) Math.max(base, 0);
+				while (i >= lowest && (buffer.get(i) & 0x80) != 0)
+					i--;
+				return ((position - 1 - i) & 1) == 0;
+			}
+		};
+
+		/**
+		 * @param buffer mapped bytes
+		 * @param base an index of the buffer which is a character boundary (it can be negative)
+		 * @param position an index to be checked
+		 * @return whether or not position is a start of character
+		 */
+		abstract boolean isCharBoundary(ByteBuffer buffer, long base, int position);
+
+		/**
+		 * @return the greatest character boundary which is not greater than position
+		 */
+		int floorCharBoundary(ByteBuffer buffer, long base, int position) {
+			if (position <= 0)
+				return 0;
+			return isCharBoundary(buffer, base, position) ? position : position - 1;
+		}
+
+		static Alignment of(Charset charset) {
+			String name = charset.name();
+			if (name.equals("UTF-8"))
+				return ANY;
+			if (name.equals("UTF-16LE") || name.equals("UTF-16BE"))
+				return TWO_BYTES;
+			if (name.equals("EUC-KR") || name.equals("GB2312"))
+				return DOUBLE_BYTES;
+			if (charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1.0f)
+				return ANY;
+			return null;
+		}
 	}
 }
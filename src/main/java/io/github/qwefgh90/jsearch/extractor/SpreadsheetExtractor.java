@@ -0,0 +1,447 @@
+package io.github.qwefgh90.jsearch.extractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.HSSFUserException;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.apache.poi.util.SAXHelper;
+import org.apache.tika.mime.MediaType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
+
+/**
+ * Extract text of spreadsheets (XLSX, XLSM, XLS) with event models of POI. <br>
+ * <br>
+ * A workbook model isn't built. Cells of XLSX are read from a sheet stream with SAX (shared strings are loaded
+ * once), and records of XLS are read with HSSF event API. Text is written to writer cell by cell: a sheet name line,
+ * and cells separated by tab and rows by line. <br>
+ * <br>
+ * Sheets and rows of a sheet can be limited. If writer throws {@link ExtractionStoppedException}, reading a file is
+ * aborted. <br>
+ * <br>
+ * <strong>process</strong>
+ * <ol>
+ * <li>create and set limits (optional)</li>
+ * <li>call extract()</li>
+ * </ol>
+ *
+ * @author Chang
+ */
+public class SpreadsheetExtractor {
+	protected static Logger log = LoggerFactory.getLogger(SpreadsheetExtractor.class);
+
+	/**
+	 * no limit of sheets or rows
+	 */
+	public static final int UNLIMITED = -1;
+
+	private static final MediaType XLS = MediaType.application("vnd.ms-excel");
+	private static final Set<MediaType> XLSX = Collections.unmodifiableSet(new HashSet<MediaType>(Arrays.asList(
+			MediaType.application("vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+			MediaType.application("vnd.ms-excel.sheet.macroenabled.12"))));
+
+	/**
+	 * cached result types of FormulaRecord. CellType and Cell constants are deprecated in this POI and
+	 * getCachedResultTypeEnum() is added in POI 3.16
+	 */
+	private static final int RESULT_NUMERIC = 0;
+	private static final int RESULT_BOOLEAN = 4;
+
+	private int maxSheets = UNLIMITED;
+	private int maxRows = UNLIMITED;
+
+	/**
+	 * @param maxSheets a maximum count of sheets. {@link #UNLIMITED} if there is no limit
+	 */
+	public void setMaxSheets(int maxSheets) {
+		this.maxSheets = maxSheets;
+	}
+
+	public int getMaxSheets() {
+		return maxSheets;
+	}
+
+	/**
+	 * @param maxRows a maximum count of rows which have cells in a sheet. {@link #UNLIMITED} if there is no limit
+	 */
+	public void setMaxRows(int maxRows) {
+		this.maxRows = maxRows;
+	}
+
+	public int getMaxRows() {
+		return maxRows;
+	}
+
+	/**
+	 * @param type mime type
+	 * @return true if type is XLSX, XLSM or XLS
+	 */
+	public static boolean isSpreadsheet(MediaType type) {
+		MediaType base = type.getBaseType();
+		return XLS.equals(base) || XLSX.contains(base);
+	}
+
+	/**
+	 * @param file spreadsheet file
+	 * @param type mime type of file
+	 * @return extracted text
+	 * @throws IOException a problem of file. refer to a message.
+	 */
+	public String extract(File file, MediaType type) throws IOException {
+		StringWriter writer = new StringWriter();
+		extract(file, type, writer);
+		return writer.toString();
+	}
+
+	/**
+	 * Extract text of cells to writer.
+	 *
+	 * @param file spreadsheet file
+	 * @param type mime type of file
+	 * @param writer a destination of text
+	 * @return false if some sheets or rows are skipped by limits
+	 * @throws IOException a problem of file. refer to a message.
+	 * @throws ExtractionStoppedException if writer stops extraction
+	 * @throws IllegalArgumentException if type isn't a spreadsheet
+	 */
+	public boolean extract(File file, MediaType type, Writer writer) throws IOException {
+		MediaType base = type.getBaseType();
+		boolean complete;
+		if (XLS.equals(base))
+			complete = extractXls(file, writer);
+		else if (XLSX.contains(base))
+			complete = extractXlsx(file, writer);
+		else
+			throw new IllegalArgumentException("The type which you input isn't spreadsheet. " + type);
+		writer.flush();
+		return complete;
+	}
+
+	private boolean extractXlsx(File file, Writer writer) throws IOException {
+		OPCPackage pkg;
+		try {
+			pkg = OPCPackage.open(file, PackageAccess.READ);
+		} catch (OpenXML4JException e) {
+			throw new IOException(e);
+		}
+		try {
+			XSSFReader reader = new XSSFReader(pkg);
+			ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+			StylesTable styles = reader.getStylesTable();
+			DataFormatter formatter = new DataFormatter();
+			XMLReader parser = SAXHelper.newXMLReader();
+
+			boolean complete = true;
+			int sheets = 0;
+			XSSFReader.SheetIterator iterator = (XSSFReader.SheetIterator) reader.getSheetsData();
+			while (iterator.hasNext()) {
+				try (InputStream sheet = iterator.next()) {
+					if (maxSheets != UNLIMITED && sheets >= maxSheets)
+						return false;
+					sheets++;
+					writer.write(iterator.getSheetName());
+					writer.write('\n');
+
+					CellWriter cells = new CellWriter(writer);
+					parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, cells, formatter, false));
+					try {
+						parser.parse(new InputSource(sheet));
+					} catch (RowLimitException e) {
+						complete = false;
+					} catch (WriterException e) {
+						throw e.getCause();
+					}
+					cells.rows.endSheet();
+				}
+			}
+			return complete;
+		} catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+			throw new IOException(e);
+		} finally {
+			pkg.revert();
+		}
+	}
+
+	private boolean extractXls(File file, Writer writer) throws IOException {
+		try (NPOIFSFileSystem fs = new NPOIFSFileSystem(file, true)) {
+			RecordWriter records = new RecordWriter(writer);
+			HSSFRequest request = new HSSFRequest();
+			request.addListenerForAllRecords(records);
+			try {
+				new HSSFEventFactory().abortableProcessWorkbookEvents(request, fs.getRoot());
+			} catch (HSSFUserException e) {
+				throw new IOException(e);
+			}
+			if (records.error != null)
+				throw records.error;
+			records.rows.endSheet();
+			return records.complete;
+		}
+	}
+
+	/**
+	 * Write cells of a row with tab. Rows which have no cell aren't written.
+	 */
+	private class RowWriter {
+		private final Writer writer;
+		private int rows = 0;
+		private int lastRow = -1;
+		private boolean firstCell = true;
+
+		private RowWriter(Writer writer) {
+			this.writer = writer;
+		}
+
+		/**
+		 * @return false if row is over a limit
+		 */
+		private boolean writeCell(int row, String value) throws IOException {
+			if (row != lastRow) {
+				if (maxRows != UNLIMITED && rows >= maxRows)
+					return false;
+				if (lastRow != -1)
+					writer.write('\n');
+				lastRow = row;
+				rows++;
+				firstCell = true;
+			}
+			if (!firstCell)
+				writer.write('\t');
+			writer.write(value);
+			firstCell = false;
+			return true;
+		}
+
+		private void endSheet() throws IOException {
+			if (lastRow != -1)
+				writer.write('\n');
+			lastRow = -1;
+			rows = 0;
+		}
+	}
+
+	/**
+	 * Cells of XLSX sheet. Exceptions are thrown through SAX parser.
+	 */
+	private class CellWriter implements SheetContentsHandler {
+		private final RowWriter rows;
+		private int row;
+
+		private CellWriter(Writer writer) {
+			this.rows = new RowWriter(writer);
+		}
+
+		@Override
+		public void startRow(int rowNum) {
+			row = rowNum;
+		}
+
+		@Override
+		public void endRow(int rowNum) {
+		}
+
+		@Override
+		public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+			if (formattedValue == null || formattedValue.isEmpty())
+				return;
+			try {
+				if (!rows.writeCell(row, formattedValue))
+					throw new RowLimitException();
+			} catch (IOException e) {
+				throw new WriterException(e);
+			}
+		}
+
+		@Override
+		public void headerFooter(String text, boolean isHeader, String tagName) {
+		}
+	}
+
+	/**
+	 * Records of XLS workbook. A sheet starts with BOFRecord and names of sheets are read from BoundSheetRecords.
+	 */
+	private class RecordWriter extends AbortableHSSFListener {
+		private final Writer writer;
+		private final RowWriter rows;
+		private final FormatTrackingHSSFListener formats = new FormatTrackingHSSFListener(null);
+		private final List<BoundSheetRecord> boundSheets = new ArrayList<BoundSheetRecord>();
+		private BoundSheetRecord[] orderedSheets;
+		private SSTRecord strings;
+		private int sheet = -1;
+		private boolean skipSheet = false;
+		private int stringRow = -1; // a row of formula whose result is in next StringRecord
+		private boolean complete = true;
+		private IOException error;
+
+		private RecordWriter(Writer writer) {
+			this.writer = writer;
+			this.rows = new RowWriter(writer);
+		}
+
+		@Override
+		public short abortableProcessRecord(Record record) {
+			formats.processRecordInternally(record);
+			try {
+				return process(record) ? 0 : (short) 1;
+			} catch (IOException e) {
+				error = e;
+				return 1;
+			}
+		}
+
+		/**
+		 * @return false to abort
+		 */
+		private boolean process(Record record) throws IOException {
+			switch (record.getSid()) {
+			case BoundSheetRecord.sid:
+				boundSheets.add((BoundSheetRecord) record);
+				return true;
+			case SSTRecord.sid:
+				strings = (SSTRecord) record;
+				return true;
+			case BOFRecord.sid:
+				if (((BOFRecord) record).getType() != BOFRecord.TYPE_WORKSHEET)
+					return true;
+				rows.endSheet();
+				sheet++;
+				if (maxSheets != UNLIMITED && sheet >= maxSheets) {
+					complete = false;
+					return false;
+				}
+				if (orderedSheets == null)
+					orderedSheets = BoundSheetRecord.orderByBofPosition(boundSheets);
+				if (sheet < orderedSheets.length) {
+					writer.write(orderedSheets[sheet].getSheetname());
+					writer.write('\n');
+				}
+				skipSheet = false;
+				return true;
+			}
+
+			if (skipSheet)
+				return true;
+			switch (record.getSid()) {
+			case LabelSSTRecord.sid:
+				LabelSSTRecord label = (LabelSSTRecord) record;
+				if (strings != null)
+					return cell(label.getRow(), strings.getString(label.getSSTIndex()).getString());
+				return true;
+			case LabelRecord.sid:
+				return cell(((LabelRecord) record).getRow(), ((LabelRecord) record).getValue());
+			case NumberRecord.sid:
+				return cell(((NumberRecord) record).getRow(), formats.formatNumberDateCell((NumberRecord) record));
+			case BoolErrRecord.sid:
+				BoolErrRecord boolErr = (BoolErrRecord) record;
+				if (boolErr.isBoolean())
+					return cell(boolErr.getRow(), Boolean.toString(boolErr.getBooleanValue()).toUpperCase());
+				return true;
+			case FormulaRecord.sid:
+				FormulaRecord formula = (FormulaRecord) record;
+				return formula(formula);
+			case StringRecord.sid:
+				if (stringRow != -1) {
+					int row = stringRow;
+					stringRow = -1;
+					return cell(row, ((StringRecord) record).getString());
+				}
+				return true;
+			default:
+				return true;
+			}
+		}
+
+		private boolean formula(FormulaRecord formula) throws IOException {
+			if (formula.hasCachedResultString()) {
+				stringRow = formula.getRow();
+				return true;
+			}
+			switch (formula.getCachedResultType()) {
+			case RESULT_NUMERIC:
+				return cell(formula.getRow(), formats.formatNumberDateCell((CellValueRecordInterface) formula));
+			case RESULT_BOOLEAN:
+				return cell(formula.getRow(), Boolean.toString(formula.getCachedBooleanValue()).toUpperCase());
+			default:
+				return true;
+			}
+		}
+
+		/**
+		 * Rows after a limit are skipped until next sheet.
+		 */
+		private boolean cell(int row, String value) throws IOException {
+			if (value == null || value.isEmpty())
+				return true;
+			if (!rows.writeCell(row, value)) {
+				skipSheet = true;
+				complete = false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * thrown to stop a sheet of XLSX when rows are over a limit
+	 */
+	private static class RowLimitException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * IOException of writer in SheetContentsHandler which can't throw a checked exception
+	 */
+	private static class WriterException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private WriterException(IOException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized IOException getCause() {
+			return (IOException) super.getCause();
+		}
+	}
+}
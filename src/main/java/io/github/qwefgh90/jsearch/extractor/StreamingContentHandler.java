@@ -0,0 +1,124 @@
+package io.github.qwefgh90.jsearch.extractor;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
+
+/**
+ * A SAX handler which writes body text of XHTML from Tika to writer directly. <br>
+ * <br>
+ * Every characters() chunk is written as it is, so memory isn't proportional to a document. If more than limit
+ * characters are written or writer throws {@link ExtractionStoppedException}, parsing is stopped with SAXException
+ * whose cause is ExtractionStoppedException. <br>
+ * <br>
+ * <strong>process</strong>
+ * <ol>
+ * <li>create with writer (and limit)</li>
+ * <li>parse a document with it</li>
+ * <li>call isLimitReached() if ExtractionStoppedException is thrown</li>
+ * </ol>
+ *
+ * @author Chang
+ */
+public class StreamingContentHandler extends DefaultHandler {
+	/**
+	 * no limit of characters
+	 */
+	public static final long UNLIMITED = -1;
+
+	private final Writer writer;
+	private final long limit;
+	private long written = 0;
+	private boolean limitReached = false;
+	private int bodyDepth = 0; // in <body> ?
+
+	/**
+	 * @param writer a destination of text
+	 */
+	public StreamingContentHandler(Writer writer) {
+		this(writer, UNLIMITED);
+	}
+
+	/**
+	 * @param writer a destination of text
+	 * @param limit a maximum count of characters. {@link #UNLIMITED} if there is no limit
+	 */
+	public StreamingContentHandler(Writer writer, long limit) {
+		if (writer == null)
+			throw new NullPointerException("Please input writer.");
+		this.writer = writer;
+		this.limit = limit;
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+		if ("body".equals(localName))
+			bodyDepth++;
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) throws SAXException {
+		if ("body".equals(localName) && bodyDepth > 0)
+			bodyDepth--;
+	}
+
+	@Override
+	public void characters(char[] ch, int start, int length) throws SAXException {
+		if (bodyDepth > 0)
+			write(ch, start, length);
+	}
+
+	@Override
+	public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+		if (bodyDepth > 0)
+			write(ch, start, length);
+	}
+
+	@Override
+	public void endDocument() throws SAXException {
+		try {
+			writer.flush();
+		} catch (IOException e) {
+			throw new SAXException(e);
+		}
+	}
+
+	/**
+	 * @return whether or not parsing is stopped by limit
+	 */
+	public boolean isLimitReached() {
+		return limitReached;
+	}
+
+	/**
+	 * @return a count of characters which are written
+	 */
+	public long getWrittenLength() {
+		return written;
+	}
+
+	private void write(char[] ch, int start, int length) throws SAXException {
+		if (limit != UNLIMITED && written + length > limit) {
+			int n = (int) (limit - written);
+			out(ch, start, n);
+			limitReached = true;
+			throw new SAXException(new ExtractionStoppedException("A limit of characters is reached."));
+		}
+		out(ch, start, length);
+	}
+
+	private void out(char[] ch, int start, int length) throws SAXException {
+		try {
+			writer.write(ch, start, length);
+			written += length;
+		} catch (IOException e) {
+			// ExtractionStoppedException of writer is found by a cause
+			throw new SAXException(e);
+		}
+	}
+}
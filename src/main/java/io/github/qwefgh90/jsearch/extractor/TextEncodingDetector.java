@@ -0,0 +1,316 @@
+package io.github.qwefgh90.jsearch.extractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.mozilla.universalchardet.UniversalDetector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.qwefgh90.jsearch.extractor.PlainTextExtractor.TextEncoding;
+import io.github.qwefgh90.jsearch.extractor.PlainTextExtractor.UTF_BOM;
+
+/**
+ * Charset detector for plain text <br>
+ * <br>
+ * <strong>process</strong>
+ * <ol>
+ * <li>check a byte order mark</li>
+ * <li>skip ASCII bytes until a first non-ASCII byte (at most {@link #ASCII_SCAN_FACTOR} samples)</li>
+ * <li>if a prefix is longer, look for a non-ASCII byte in {@link #PROBE_WINDOWS} windows up to the end of file.
+ * UTF-8 if there is none</li>
+ * <li>validate a sample from there as strict UTF-8</li>
+ * <li>run UniversalDetector on the sample only</li>
+ * </ol>
+ * A result is cached with a path, a length and a last modified time of file, and a configuration of detector.
+ *
+ * @author Chang
+ */
+public class TextEncodingDetector {
+	protected static Logger log = LoggerFactory.getLogger(TextEncodingDetector.class);
+
+	public static final int DEFAULT_SAMPLE_SIZE = 64 * 1024;
+	/**
+	 * ASCII bytes which are skipped are at most this times a sample size (or a read buffer, if larger). After a longer
+	 * ASCII prefix, only {@link #PROBE_WINDOWS} windows are read.
+	 */
+	public static final int ASCII_SCAN_FACTOR = 16;
+	/**
+	 * windows which are spread from the end of an ASCII prefix to the end of file (a last one is a tail of file)
+	 */
+	public static final int PROBE_WINDOWS = 8;
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+	private static final int DETECTOR_FEED_SIZE = 4 * 1024;
+	private static final int CACHE_SIZE = 1024;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static volatile TextEncodingDetector defaultDetector = new TextEncodingDetector(DEFAULT_SAMPLE_SIZE,
+			true);
+
+	private static final Map<String, TextEncoding> cache = Collections
+			.synchronizedMap(new LinkedHashMap<String, TextEncoding>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, TextEncoding> eldest) {
+					return size() > CACHE_SIZE;
+				}
+			});
+
+	private final int sampleSize;
+	private final boolean stopWhenDone;
+
+	/**
+	 * @param sampleSize a maximum count of bytes which are validated and given to UniversalDetector
+	 * @param stopWhenDone if true, stop feeding UniversalDetector once it is done
+	 */
+	public TextEncodingDetector(int sampleSize, boolean stopWhenDone) {
+		if (sampleSize < 4)
+			throw new IllegalArgumentException("sampleSize must be 4 or more.");
+		this.sampleSize = sampleSize;
+		this.stopWhenDone = stopWhenDone;
+	}
+
+	/**
+	 * @return a detector which is used by {@link PlainTextExtractor}
+	 */
+	public static TextEncodingDetector getDefault() {
+		return defaultDetector;
+	}
+
+	/**
+	 * @param detector a detector which will be used by {@link PlainTextExtractor}
+	 */
+	public static void setDefault(TextEncodingDetector detector) {
+		if (detector == null)
+			throw new NullPointerException();
+		defaultDetector = detector;
+		clearCache();
+	}
+
+	/**
+	 * Remove all cached results.
+	 */
+	public static void clearCache() {
+		cache.clear();
+	}
+
+	/**
+	 * Detect a charset of file.
+	 *
+	 * @param file target file
+	 * @return detected charset. UTF-8 if it is unknown.
+	 * @throws IOException a problem of file. refer to a message.
+	 */
+	public Charset detect(File file) throws IOException {
+		return detectEncoding(file).charset;
+	}
+
+	TextEncoding detectEncoding(File file) throws IOException {
+		String signature = file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified() + ":" + sampleSize
+				+ ":" + stopWhenDone;
+		TextEncoding encoding = cache.get(signature);
+		if (encoding == null) {
+			encoding = detectEncodingNoCache(file);
+			cache.put(signature, encoding);
+		}
+		return encoding;
+	}
+
+	private TextEncoding detectEncodingNoCache(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(Math.max(sampleSize, READ_BUFFER_SIZE));
+			fill(channel, buffer);
+			buffer.flip();
+
+			/* BOM (Byte Order Mask) */
+			byte[] head = new byte[3];
+			buffer.duplicate().get(head, 0, Math.min(3, buffer.remaining()));
+			if (buffer.remaining() >= 3 && UTF_BOM.UTF_8.compare(head)) {
+				log.debug("UTF_8_BOM");
+				return new TextEncoding(UTF_8, UTF_BOM.UTF_8.mark.length);
+			} else if (buffer.remaining() >= 2 && UTF_BOM.UTF_16_LITTLE.compare(head)) {
+				log.debug("UTF_16LE_BOM");
+				return new TextEncoding(Charset.forName("UTF-16LE"), UTF_BOM.UTF_16_LITTLE.mark.length);
+			} else if (buffer.remaining() >= 2 && UTF_BOM.UTF_16_BIG.compare(head)) {
+				log.debug("UTF_16BE_BOM");
+				return new TextEncoding(Charset.forName("UTF-16BE"), UTF_BOM.UTF_16_BIG.mark.length);
+			}
+
+			/* skip ASCII in a bounded prefix */
+			long maxAscii = (long) buffer.capacity() * ASCII_SCAN_FACTOR;
+			long skipped = 0;
+			boolean found = skipAscii(buffer);
+			while (found == false) {
+				skipped += buffer.limit();
+				buffer.clear();
+				if (skipped >= maxAscii) {
+					found = probe(channel, buffer, skipped);
+					break;
+				}
+				if (fill(channel, buffer) == false)
+					break;
+				buffer.flip();
+				found = skipAscii(buffer);
+			}
+			if (found == false) {
+				log.debug("ASCII");
+				return new TextEncoding(UTF_8, 0);
+			}
+
+			/* a sample from a first non-ASCII byte */
+			buffer.compact();
+			fill(channel, buffer);
+			buffer.flip();
+			int length = Math.min(buffer.remaining(), sampleSize);
+			byte[] sample = new byte[length];
+			buffer.get(sample);
+			boolean endOfFile = buffer.remaining() == 0 && channel.position() >= channel.size();
+
+			if (isUtf8(sample, length, endOfFile)) {
+				log.debug("UTF_8");
+				return new TextEncoding(UTF_8, 0);
+			}
+
+			UniversalDetector detector = new UniversalDetector(null);
+			for (int off = 0; off < length; off += DETECTOR_FEED_SIZE) {
+				detector.handleData(sample, off, Math.min(DETECTOR_FEED_SIZE, length - off));
+				if (stopWhenDone && detector.isDone())
+					break;
+			}
+			detector.dataEnd();
+			String detectedCharset = detector.getDetectedCharset();
+			log.debug("NOT_BOM " + detectedCharset);
+			if (detectedCharset != null && Charset.isSupported(detectedCharset))
+				return new TextEncoding(Charset.forName(detectedCharset), 0);
+			return new TextEncoding(UTF_8, 0);
+		}
+	}
+
+	/**
+	 * @return false if there is no more data
+	 */
+	private static boolean fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+		boolean read = false;
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) == -1)
+				break;
+			read = true;
+		}
+		return read;
+	}
+
+	/**
+	 * Read windows from position to the end of file until a non-ASCII byte is found. A channel is left after the
+	 * window which is in buffer.
+	 *
+	 * @return false if all windows are ASCII
+	 */
+	private static boolean probe(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		long last = Math.max(position, channel.size() - buffer.capacity());
+		for (int i = 0; i < PROBE_WINDOWS; i++) {
+			long offset = position + (last - position) * i / (PROBE_WINDOWS - 1);
+			channel.position(offset);
+			buffer.clear();
+			fill(channel, buffer);
+			buffer.flip();
+			if (skipToLead(buffer))
+				return true;
+			if (offset == last)
+				break;
+		}
+		return false;
+	}
+
+	/**
+	 * move a position of buffer to a first non-ASCII byte after an ASCII byte. A window can start in the middle of a
+	 * multi-byte character, so bytes before a first ASCII byte are skipped.
+	 *
+	 * @return false if there is no such byte
+	 */
+	private static boolean skipToLead(ByteBuffer buffer) {
+		byte[] array = buffer.array();
+		int start = buffer.arrayOffset() + buffer.position();
+		int end = buffer.arrayOffset() + buffer.limit();
+		for (int i = start + 1; i < end; i++) {
+			if (array[i] < 0 && array[i - 1] >= 0) {
+				buffer.position(i - buffer.arrayOffset());
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * move a position of buffer to a first non-ASCII byte.
+	 *
+	 * @return false if all bytes are ASCII
+	 */
+	private static boolean skipAscii(ByteBuffer buffer) {
+		byte[] array = buffer.array();
+		int i = buffer.arrayOffset() + buffer.position();
+		int end = buffer.arrayOffset() + buffer.limit();
+		while (i < end && array[i] >= 0)
+			i++;
+		buffer.position(i - buffer.arrayOffset());
+		return i < end;
+	}
+
+	/**
+	 * Strict UTF-8 validation. Overlong forms, surrogates and code points over U+10FFFF are invalid.
+	 *
+	 * @param endOfFile if false, a truncated sequence at the end is allowed
+	 */
+	static boolean isUtf8(byte[] b, int length, boolean endOfFile) {
+		int i = 0;
+		while (i < length) {
+			int c = b[i] & 0xFF;
+			if (c < 0x80) {
+				i++;
+				continue;
+			}
+			int n;
+			int min;
+			if (c >= 0xC2 && c <= 0xDF) {
+				n = 1;
+				min = 0x80;
+			} else if (c >= 0xE0 && c <= 0xEF) {
+				n = 2;
+				min = 0x800;
+			} else if (c >= 0xF0 && c <= 0xF4) {
+				n = 3;
+				min = 0x10000;
+			} else {
+				return false;
+			}
+			if (i + n >= length)
+				return !endOfFile && checkTrail(b, i + 1, length);
+			int cp = c & (0x3F >> n);
+			for (int k = 1; k <= n; k++) {
+				int t = b[i + k] & 0xFF;
+				if ((t & 0xC0) != 0x80)
+					return false;
+				cp = (cp << 6) | (t & 0x3F);
+			}
+			if (cp < min || cp > 0x10FFFF || (cp >= 0xD800 && cp <= 0xDFFF))
+				return false;
+			i += n + 1;
+		}
+		return true;
+	}
+
+	private static boolean checkTrail(byte[] b, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if ((b[i] & 0xC0) != 0x80)
+				return false;
+		}
+		return true;
+	}
+}
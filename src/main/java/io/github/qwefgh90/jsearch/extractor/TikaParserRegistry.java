@@ -0,0 +1,323 @@
+package io.github.qwefgh90.jsearch.extractor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.tika.detect.DefaultDetector;
+import org.apache.tika.detect.Detector;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.mime.MediaType;
+import org.apache.tika.mime.MediaTypeRegistry;
+import org.apache.tika.mime.MimeTypes;
+import org.apache.tika.parser.AbstractParser;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.EmptyParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.parser.pdf.PDFParserConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+/**
+ * A registry of Tika parsers which are created lazily. <br>
+ * <br>
+ * AutoDetectParser creates every parser of tika-parsers (images, audio, OCR, scientific formats...) at once.
+ * This registry maps enabled mime types to parser class names and creates a parser when a document of its type is
+ * parsed first. A type is looked up with its supertypes (e.g. docx -&gt; application/x-tika-ooxml), but a parser of
+ * a supertype is used only if it declares the type itself or it is registered with subtypes (e.g. text/plain).
+ * Otherwise (e.g. a Pages document is a zip, but PackageParser doesn't parse it) the type is handled like an
+ * unregistered type. <br>
+ * <br>
+ * Embedded images and OCR are disabled by default. A type which isn't registered is skipped (EmptyParser). If
+ * {@link #setAutoDetectFallback(boolean)} is true, it is parsed by AutoDetectParser which is created lazily at
+ * first use, with every parser of tika-parsers. <br>
+ * <br>
+ * <strong>process</strong>
+ * <ol>
+ * <li>createDefault() or register() types</li>
+ * <li>call warmUp() in a long-running service (optional)</li>
+ * <li>getParser() or parse() with {@link #createContext(boolean)}</li>
+ * </ol>
+ *
+ * @author Chang
+ */
+public class TikaParserRegistry extends AbstractParser {
+	private static final long serialVersionUID = 1L;
+	protected static Logger log = LoggerFactory.getLogger(TikaParserRegistry.class);
+
+	private final ConcurrentMap<MediaType, String> classNames = new ConcurrentHashMap<MediaType, String>();
+	private final ConcurrentMap<String, Parser> parsers = new ConcurrentHashMap<String, Parser>();
+	private final ConcurrentMap<MediaType, Parser> resolved = new ConcurrentHashMap<MediaType, Parser>();
+	private final Set<MediaType> withSubtypes = Collections.newSetFromMap(new ConcurrentHashMap<MediaType, Boolean>());
+	private volatile boolean embeddedImages = false;
+	private volatile boolean ocr = false;
+	private volatile boolean autoDetectFallback = false;
+	private static volatile boolean fallbackLoaded = false;
+
+	/**
+	 * Parsers for documents which JSearch searches. Office, PDF, OpenDocument, EPUB, RTF, HTML, XML, text, archives
+	 * and mail
+	 *
+	 * @return new registry
+	 */
+	public static TikaParserRegistry createDefault() {
+		TikaParserRegistry registry = new TikaParserRegistry();
+		registry.register("org.apache.tika.parser.microsoft.OfficeParser", "application/x-tika-msoffice",
+				"application/x-tika-ooxml-protected");
+		registry.register("org.apache.tika.parser.microsoft.ooxml.OOXMLParser", "application/x-tika-ooxml");
+		registry.register("org.apache.tika.parser.pdf.PDFParser", "application/pdf");
+		registry.register("org.apache.tika.parser.odf.OpenDocumentParser", "application/vnd.oasis.opendocument.text",
+				"application/vnd.oasis.opendocument.spreadsheet", "application/vnd.oasis.opendocument.presentation");
+		registry.register("org.apache.tika.parser.epub.EpubParser", "application/epub+zip");
+		registry.register("org.apache.tika.parser.rtf.RTFParser", "application/rtf");
+		registry.register("org.apache.tika.parser.html.HtmlParser", "text/html", "application/xhtml+xml");
+		registry.register("org.apache.tika.parser.xml.DcXMLParser", "application/xml");
+		// TXTParser declares only text/plain, but it reads any text (csv, properties, source code...)
+		registry.registerWithSubtypes("org.apache.tika.parser.txt.TXTParser", "text/plain");
+		registry.register("org.apache.tika.parser.pkg.PackageParser", "application/zip", "application/x-tar",
+				"application/x-7z-compressed");
+		registry.register("org.apache.tika.parser.pkg.CompressorParser", "application/gzip", "application/x-bzip2");
+		registry.register("org.apache.tika.parser.mail.RFC822Parser", "message/rfc822");
+		return registry;
+	}
+
+	/**
+	 * Enable types with a parser. A parser isn't created until it is used.
+	 *
+	 * @param parserClassName a class name of parser which has a default constructor
+	 * @param types mime types
+	 * @return this registry
+	 */
+	public TikaParserRegistry register(String parserClassName, String... types) {
+		for (String type : types)
+			classNames.put(MediaType.parse(type), parserClassName);
+		resolved.clear();
+		return this;
+	}
+
+	/**
+	 * Enable types and all of their subtypes with a parser, even if the parser doesn't declare the subtypes.
+	 *
+	 * @param parserClassName a class name of parser which has a default constructor
+	 * @param types mime types
+	 * @return this registry
+	 */
+	public TikaParserRegistry registerWithSubtypes(String parserClassName, String... types) {
+		for (String type : types)
+			withSubtypes.add(MediaType.parse(type));
+		return register(parserClassName, types);
+	}
+
+	/**
+	 * Disable types. Their subtypes are disabled too if they aren't registered.
+	 *
+	 * @param types mime types
+	 * @return this registry
+	 */
+	public TikaParserRegistry unregister(String... types) {
+		for (String type : types) {
+			classNames.remove(MediaType.parse(type));
+			withSubtypes.remove(MediaType.parse(type));
+		}
+		resolved.clear();
+		return this;
+	}
+
+	/**
+	 * @param embeddedImages if true, images (e.g. pictures in documents) are parsed. default is false
+	 */
+	public void setEmbeddedImages(boolean embeddedImages) {
+		this.embeddedImages = embeddedImages;
+		resolved.clear();
+	}
+
+	public boolean isEmbeddedImages() {
+		return embeddedImages;
+	}
+
+	/**
+	 * @param ocr if true, PDFParser renders pages and runs OCR on them in addition to text extraction. tesseract
+	 *            must be installed. default is false
+	 */
+	public void setOcr(boolean ocr) {
+		this.ocr = ocr;
+	}
+
+	public boolean isOcr() {
+		return ocr;
+	}
+
+	/**
+	 * @param autoDetectFallback if true, types which aren't registered are parsed by AutoDetectParser. if false,
+	 *            they are skipped. default is false
+	 */
+	public void setAutoDetectFallback(boolean autoDetectFallback) {
+		this.autoDetectFallback = autoDetectFallback;
+		resolved.clear();
+	}
+
+	public boolean isAutoDetectFallback() {
+		return autoDetectFallback;
+	}
+
+	/**
+	 * Create registered parsers and a detector in advance. AutoDetectParser for fallback is still created lazily.
+	 */
+	public void warmUp() {
+		for (String className : new HashSet<String>(classNames.values()))
+			instance(className);
+		DetectorHolder.detector.hashCode();
+	}
+
+	/**
+	 * Find a parser of type or its supertypes. A parser of a supertype must declare type in its supported types.
+	 *
+	 * @param type mime type
+	 * @return a parser. EmptyParser if type is disabled
+	 */
+	public Parser getParser(MediaType type) {
+		MediaType base = type.getBaseType();
+		Parser found = resolved.get(base);
+		if (found != null)
+			return found;
+
+		found = null;
+		if (!embeddedImages && "image".equals(base.getType())) {
+			found = EmptyParser.INSTANCE;
+		} else {
+			MediaTypeRegistry registry = RegistryHolder.registry;
+			MediaType normalized = registry.normalize(base);
+			for (MediaType t = normalized; t != null && found == null; t = registry.getSupertype(t)) {
+				String className = classNames.get(t);
+				if (className == null)
+					continue;
+				Parser parser = instance(className);
+				if (parser != null
+						&& (t.equals(normalized) || withSubtypes.contains(t) || declares(parser, normalized)))
+					found = parser;
+			}
+		}
+		if (found == null)
+			found = autoDetectFallback ? FallbackHolder.parser : EmptyParser.INSTANCE;
+
+		log.debug("parser of {} : {}", base, found.getClass().getName());
+		resolved.putIfAbsent(base, found);
+		return found;
+	}
+
+	/**
+	 * @param embedded if true, embedded documents are parsed with this registry
+	 * @return a context for parsing
+	 */
+	public ParseContext createContext(boolean embedded) {
+		ParseContext context = new ParseContext();
+		if (embedded)
+			context.set(Parser.class, this);
+		context.set(PDFParserConfig.class, ocr ? PdfConfigHolder.ocrConfig : PdfConfigHolder.config);
+		return context;
+	}
+
+	private static boolean declares(Parser parser, MediaType type) {
+		return parser.getSupportedTypes(new ParseContext()).contains(type);
+	}
+
+	@Override
+	public Set<MediaType> getSupportedTypes(ParseContext context) {
+		return Collections.unmodifiableSet(new HashSet<MediaType>(classNames.keySet()));
+	}
+
+	/**
+	 * Parse with a parser of {@link Metadata#CONTENT_TYPE}. If it isn't set, a type is detected.
+	 */
+	@Override
+	public void parse(InputStream stream, ContentHandler handler, Metadata metadata, ParseContext context)
+			throws IOException, SAXException, TikaException {
+		String contentType = metadata.get(Metadata.CONTENT_TYPE);
+		MediaType type = contentType == null ? null : MediaType.parse(contentType);
+		if (type == null) {
+			// TikaInputStream supports mark() for detection
+			stream = TikaInputStream.get(stream);
+			type = DetectorHolder.detector.detect(stream, metadata);
+			metadata.set(Metadata.CONTENT_TYPE, type.toString());
+		}
+		getParser(type).parse(stream, handler, metadata, context);
+	}
+
+	private Parser instance(String className) {
+		Parser parser = parsers.get(className);
+		if (parser != null)
+			return parser;
+		try {
+			parser = (Parser) Class.forName(className).getConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			log.warn("Can't create parser {}", className, e);
+			return null;
+		}
+		Parser previous = parsers.putIfAbsent(className, parser);
+		return previous == null ? parser : previous;
+	}
+
+	/**
+	 * @return classes of parsers which are created
+	 */
+	Map<String, Parser> getCreatedParsers() {
+		return Collections.unmodifiableMap(parsers);
+	}
+
+	/**
+	 * @return true if AutoDetectParser for fallback is created in this JVM
+	 */
+	static boolean isFallbackLoaded() {
+		return fallbackLoaded;
+	}
+
+	/**
+	 * loaded at first use
+	 */
+	private static class RegistryHolder {
+		static final MediaTypeRegistry registry = MimeTypes.getDefaultMimeTypes().getMediaTypeRegistry();
+	}
+
+	/**
+	 * loaded at first use of a document whose type is unknown
+	 */
+	private static class DetectorHolder {
+		static final Detector detector = new DefaultDetector();
+	}
+
+	/**
+	 * PDFParserConfig reads a properties file when it is created. They are shared and never changed.
+	 */
+	private static class PdfConfigHolder {
+		static final PDFParserConfig config = new PDFParserConfig();
+		static final PDFParserConfig ocrConfig = new PDFParserConfig();
+
+		static {
+			config.setExtractInlineImages(false);
+			config.setOcrStrategy(PDFParserConfig.OCR_STRATEGY.NO_OCR);
+			ocrConfig.setExtractInlineImages(false);
+			ocrConfig.setOcrStrategy(PDFParserConfig.OCR_STRATEGY.OCR_AND_TEXT_EXTRACTION);
+		}
+	}
+
+	/**
+	 * loaded at first use of a type which isn't registered
+	 */
+	private static class FallbackHolder {
+		static final AutoDetectParser parser = new AutoDetectParser();
+
+		static {
+			fallbackLoaded = true;
+		}
+	}
+}
@@ -23,24 +23,31 @@ package io.github.qwefgh90.jsearch.extractor;
 
 import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 
 import org.apache.tika.detect.Detector;
 import org.apache.tika.exception.TikaException;
+import org.apache.tika.io.TikaInputStream;
 import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.OfficeOpenXMLCore;
+import org.apache.tika.metadata.PagedText;
+import org.apache.tika.metadata.TikaCoreProperties;
 import org.apache.tika.mime.MediaType;
 import org.apache.tika.mime.MimeTypes;
-import org.apache.tika.parser.AutoDetectParser;
-import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
 import com.sun.swing.internal.plaf.metal.resources.metal;
 
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
+
 /**
  * Office Extractor with Tika which is open source <br>
  * <br>
@@ -54,8 +61,7 @@ import com.sun.swing.internal.plaf.metal.resources.metal;
  */
 public class TikaTextExtractor {
 	protected static Logger log = LoggerFactory.getLogger(TikaTextExtractor.class);
-	private static final AutoDetectParser parser = new AutoDetectParser(); // thread-safe
-																			// http://lucene.472066.n3.nabble.com/Thread-Safety-td646195.html
+	private static final TikaParserRegistry registry = TikaParserRegistry.createDefault(); // thread-safe
 
 	/**
 	 * 
@@ -66,11 +72,164 @@ public class TikaTextExtractor {
 	 * @throws TikaException throw this, if can not parse file.
 	 */
 	public static final String extract(File file) throws IOException, SAXException, TikaException {
-		final ContentHandler handler = new BodyContentHandler(-1);//infinity -> -1, object will be gone soon
-		final Metadata metadata = new Metadata(); // only 1-run 1-use, object will be gone soon
-		try (InputStream input = new FileInputStream(file)) {
-			TikaTextExtractor.parser.parse(input, handler, metadata);
+		return extract(file, (MediaType) null);
+	}
+
+	/**
+	 * Extract text with a parser for known mime type. Type detection is skipped.
+	 * 
+	 * @param file office file
+	 * @param type mime type which is already detected. if null, it is detected again
+	 * @return extracted text
+	 * @throws IOException a problem of file. refer to a message.
+	 * @throws SAXException 
+	 * @throws TikaException throw this, if can not parse file.
+	 */
+	public static final String extract(File file, MediaType type) throws IOException, SAXException, TikaException {
+		final StringWriter writer = new StringWriter();
+		parse(file, type, new StreamingContentHandler(writer), new Metadata(), registry.createContext(true));
+		return writer.toString();
+	}
+
+	/**
+	 * Extract text to writer while parsing.
+	 * 
+	 * @param file office file
+	 * @param writer a destination of text
+	 * @throws IOException a problem of file. refer to a message.
+	 * @throws ExtractionStoppedException if writer stops extraction
+	 * @throws SAXException 
+	 * @throws TikaException throw this, if can not parse file.
+	 */
+	public static final void extract(File file, Writer writer) throws IOException, SAXException, TikaException {
+		extract(file, null, writer);
+	}
+
+	/**
+	 * Extract text to writer with a parser for known mime type. Type detection is skipped.
+	 * 
+	 * @param file office file
+	 * @param type mime type which is already detected. if null, it is detected again
+	 * @param writer a destination of text
+	 * @throws IOException a problem of file. refer to a message.
+	 * @throws ExtractionStoppedException if writer stops extraction
+	 * @throws SAXException 
+	 * @throws TikaException throw this, if can not parse file.
+	 */
+	public static final void extract(File file, MediaType type, Writer writer)
+			throws IOException, SAXException, TikaException {
+		final ContentHandler handler = new StreamingContentHandler(writer);
+		try {
+			parse(file, type, handler, new Metadata(), registry.createContext(true));
+		} catch (SAXException | TikaException e) {
+			rethrowIfStopped(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Extract first maxLength characters of text to writer. Parsing is stopped after it.
+	 * 
+	 * @param file office file
+	 * @param type mime type which is already detected. if null, it is detected again
+	 * @param maxLength a maximum count of characters
+	 * @param writer a destination of text
+	 * @return false if text is longer than maxLength
+	 * @throws IOException a problem of file. refer to a message.
+	 * @throws ExtractionStoppedException if writer stops extraction
+	 * @throws SAXException 
+	 * @throws TikaException throw this, if can not parse file.
+	 */
+	public static final boolean extract(File file, MediaType type, long maxLength, Writer writer)
+			throws IOException, SAXException, TikaException {
+		final StreamingContentHandler handler = new StreamingContentHandler(writer, maxLength);
+		try {
+			parse(file, type, handler, new Metadata(), registry.createContext(true));
+			return true;
+		} catch (SAXException | TikaException e) {
+			if (handler.isLimitReached())
+				return false;
+			rethrowIfStopped(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Read metadata only. Body text is discarded while parsing and embedded documents are not parsed.
+	 * 
+	 * @param file office file
+	 * @return metadata
+	 * @throws IOException a problem of file. refer to a message.
+	 * @throws SAXException 
+	 * @throws TikaException throw this, if can not parse file.
+	 */
+	public static final DocumentMetadata extractMetadata(File file) throws IOException, SAXException, TikaException {
+		return extractMetadata(file, null);
+	}
+
+	/**
+	 * Read metadata only with a parser for known mime type.
+	 * 
+	 * @param file office file
+	 * @param type mime type which is already detected. if null, it is detected again
+	 * @return metadata
+	 * @throws IOException a problem of file. refer to a message.
+	 * @throws SAXException 
+	 * @throws TikaException throw this, if can not parse file.
+	 */
+	public static final DocumentMetadata extractMetadata(File file, MediaType type)
+			throws IOException, SAXException, TikaException {
+		final Metadata metadata = new Metadata();
+		// a context without Parser doesn't parse embedded documents
+		parse(file, type, new DefaultHandler(), metadata, registry.createContext(false));
+
+		DocumentMetadata result = new DocumentMetadata();
+		result.setContentType(metadata.get(Metadata.CONTENT_TYPE));
+		result.setTitle(metadata.get(TikaCoreProperties.TITLE));
+		result.setAuthor(metadata.get(TikaCoreProperties.CREATOR));
+		result.setLastAuthor(metadata.get(TikaCoreProperties.MODIFIER));
+		result.setKeywords(metadata.get(TikaCoreProperties.KEYWORDS));
+		result.setComments(metadata.get(TikaCoreProperties.DESCRIPTION));
+		result.setSubject(metadata.get(OfficeOpenXMLCore.SUBJECT));
+		result.setCreated(metadata.getDate(TikaCoreProperties.CREATED));
+		result.setModified(metadata.getDate(TikaCoreProperties.MODIFIED));
+		result.setPageCount(metadata.getInt(PagedText.N_PAGES));
+		for (String name : metadata.names())
+			result.setProperty(name, metadata.get(name));
+		return result;
+	}
+
+	/**
+	 * Parse file from {@link TikaInputStream} which gives container parsers (OLE2, ZIP) random access to file.
+	 */
+	private static void parse(File file, MediaType type, ContentHandler handler, Metadata metadata,
+			ParseContext context) throws IOException, SAXException, TikaException {
+		Parser target = registry;
+		if (type != null) {
+			metadata.set(Metadata.CONTENT_TYPE, type.toString());
+			target = registry.getParser(type);
+		}
+		try (TikaInputStream input = TikaInputStream.get(file.toPath(), metadata)) {
+			target.parse(input, handler, metadata, context);
+		}
+	}
+
+	/**
+	 * Parsers are created lazily for enabled types. Configure it or call warmUp() before extraction.
+	 * 
+	 * @return a registry which is used by this extractor
+	 */
+	public static TikaParserRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Tika wraps an exception of writer. Find {@link ExtractionStoppedException} in causes.
+	 */
+	static void rethrowIfStopped(Throwable e) throws ExtractionStoppedException {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof ExtractionStoppedException)
+				throw (ExtractionStoppedException) cause;
 		}
-		return handler.toString();
 	}
 }
@@ -24,91 +24,82 @@
  */
 package io.github.qwefgh90.jsearch.extractor.hwp;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.github.qwefgh90.jsearch.extractor.hwp.HncTableCompiler.Table;
+
 /**
  * This software has been developed with reference to
  * the HWP file format open specification by Hancom, Inc.
  * http://www.hancom.co.kr/userofficedata.userofficedataList.do?menuFlag=3
  * 한글과컴퓨터의 한/글 문서 파일(.hwp) 공개 문서를 참고하여 개발하였습니다.
+ * <br><br>
+ * 빌드할 때 만든 hnc2unicode.bin 을 한번에 읽는다.
+ * 없으면 hnc2unicode.rb 를 해석한다.
  * @author qwefgh90
  *
  */
 class Hnc2String {
 	static Logger log = LoggerFactory.getLogger(Hnc2String.class);
-	static final String[] map = new String[65536]; // max : 0xFFFF
-
-	static {
-		Pattern P = Pattern
-				.compile("0x([0-9a-f]{4})\\s*=>\\s*\\[" + "0x([0-9a-f]{4})"
-						+ "(?:,\\s*0x([0-9a-f]{4}))?"
-						+ "(?:,\\s*0x([0-9a-f]{4}))?" + "\\]",
-						Pattern.CASE_INSENSITIVE);
+	static boolean precompiled; // hnc2unicode.bin 을 읽었는가?
+	private static final Table table = load();
 
-		InputStream resource = Hnc2String.class.getClassLoader()
-				.getResourceAsStream("hnc2unicode.rb");
-		int lineNumber = 0;
-		char[] chars = new char[3];
+	private static Table load() {
+		ClassLoader loader = Hnc2String.class.getClassLoader();
+		InputStream resource = loader.getResourceAsStream(HncTableCompiler.TABLE);
+		if (resource != null) {
+			try {
+				Table table = HncTableCompiler.read(resource);
+				precompiled = true;
+				return table;
+			} catch (IOException e) {
+				log.warn(HncTableCompiler.TABLE + " is invalid. " + HncTableCompiler.SOURCE + " is used.", e);
+			} finally {
+				close(resource);
+			}
+		}
 
+		resource = loader.getResourceAsStream(HncTableCompiler.SOURCE);
 		try {
-			BufferedReader reader = new BufferedReader(new InputStreamReader(
-					resource, "UTF-8"));
-
-			for (;;) {
-				String line = reader.readLine();
-				if (line == null)
-					break;
-
-				lineNumber++;
-				line = line.trim();
-				if (line.length() == 0)
-					continue;
-				if (line.startsWith("#"))
-					continue;
-
-				Matcher matcher = P.matcher(line);
-				if (matcher.find()) {
-					int code = Integer.parseInt(matcher.group(1), 16);
-					int len;
-
-					for (len = 1; len < matcher.groupCount(); len++) {
-						String hex = matcher.group(len + 1);
-						if (hex == null)
-							break;
-
-						chars[len - 1] = (char) Integer.parseInt(hex, 16);
-					}
-
-					map[code] = new String(chars, 0, len - 1);
-				} else {
-					log.trace("[" + lineNumber + "]>>>" + line);
-				}
-			}
-		} catch (UnsupportedEncodingException e) {
-			throw new RuntimeException(e);
+			return Table.of(HncTableCompiler.parse(resource));
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		} finally {
-			try {
-				resource.close();
-			} catch (IOException e) {
-				// ignore ?
-			}
+			close(resource);
+		}
+	}
+
+	private static void close(InputStream resource) {
+		try {
+			resource.close();
+		} catch (IOException e) {
+			// ignore ?
 		}
 	}
 
 	static String convert(int c) {
 		assert c >= 0 && c < 0xFFFF;
 
-		return map[c];
+		int length = table.length(c);
+		return length == 0 ? null : new String(table.chars, table.offsets[c], length);
+	}
+
+	/**
+	 * dest 에 유니코드 문자를 쓴다. dest 는 3 문자 이상 남아 있어야 한다
+	 * 
+	 * @return 쓴 문자 수. 매핑 문자가 없으면 0
+	 */
+	static int convert(int c, char[] dest, int offset) {
+		int from = table.offsets[c];
+		int length = table.offsets[c + 1] - from;
+		if (length == 1)
+			dest[offset] = table.chars[from];
+		else
+			System.arraycopy(table.chars, from, dest, offset, length);
+		return length;
 	}
 }
@@ -0,0 +1,226 @@
+/*
+   Copyright [2015] argonet.co.kr
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+/*
+ * This software has been developed with reference to
+ * the HWP file format open specification by Hancom, Inc.
+ * http://www.hancom.co.kr/userofficedata.userofficedataList.do?menuFlag=3
+ * 한글과컴퓨터의 한/글 문서 파일(.hwp) 공개 문서를 참고하여 개발하였습니다.
+ * 
+ * 본 제품은 다음의 소스를 참조하였습니다.
+ * https://github.com/cogniti/ruby-hwp/
+ */
+package io.github.qwefgh90.jsearch.extractor.hwp;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * hnc2unicode.rb 를 빌드할 때 이진 표(hnc2unicode.bin)로 변환한다.
+ * hnc2unicode.rb 가 원본이다.
+ * <br><br>
+ * <strong>hnc2unicode.bin</strong>
+ * <ol>
+ * <li>int MAGIC</li>
+ * <li>int 유니코드 문자 수 (n)</li>
+ * <li>byte[65536] HNC 코드마다 문자 길이 (0 은 매핑 없음, 1~3)</li>
+ * <li>char[n] HNC 코드 순서로 이어 붙인 유니코드 문자</li>
+ * </ol>
+ * 모든 값은 big endian 이다.
+ * @author qwefgh90
+ *
+ */
+final class HncTableCompiler {
+	static final String SOURCE = "hnc2unicode.rb";
+	static final String TABLE = "hnc2unicode.bin";
+	static final int MAGIC = 0x484E4331; // "HNC1"
+	static final int CODE_COUNT = 65536; // max : 0xFFFF
+
+	private HncTableCompiler() {
+	}
+
+	/**
+	 * @param args
+	 *            args[0] 은 hnc2unicode.bin 을 만들 디렉토리
+	 *            (hnc2unicode.rb 는 같은 디렉토리 또는 classpath 에서 읽는다)
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1)
+			throw new IllegalArgumentException("Usage: HncTableCompiler <output directory>");
+
+		File directory = new File(args[0]);
+		File source = new File(directory, SOURCE);
+		InputStream input = source.exists() ? new FileInputStream(source)
+				: HncTableCompiler.class.getClassLoader().getResourceAsStream(SOURCE);
+		if (input == null)
+			throw new IOException(SOURCE + " doesn't exist.");
+
+		String[] map;
+		try {
+			map = parse(input);
+		} finally {
+			input.close();
+		}
+
+		File target = new File(directory, TABLE);
+		OutputStream output = new BufferedOutputStream(new FileOutputStream(target));
+		try {
+			write(map, output);
+		} finally {
+			output.close();
+		}
+
+		// 검증 : 다시 읽어서 원본과 비교한다
+		Table table;
+		InputStream written = new FileInputStream(target);
+		try {
+			table = read(written);
+		} finally {
+			written.close();
+		}
+		for (int code = 0; code < CODE_COUNT; code++) {
+			String expected = map[code];
+			String actual = table.length(code) == 0 ? null
+					: new String(table.chars, table.offsets[code], table.length(code));
+			if (expected == null ? actual != null : !expected.equals(actual))
+				throw new IOException("Invalid " + TABLE + " at 0x" + Integer.toHexString(code));
+		}
+	}
+
+	/**
+	 * hnc2unicode.rb 해석
+	 * 
+	 * @return HNC 코드마다 유니코드 문자열. 매핑이 없으면 null
+	 */
+	static String[] parse(InputStream resource) throws IOException {
+		Pattern P = Pattern
+				.compile("0x([0-9a-f]{4})\\s*=>\\s*\\[" + "0x([0-9a-f]{4})"
+						+ "(?:,\\s*0x([0-9a-f]{4}))?"
+						+ "(?:,\\s*0x([0-9a-f]{4}))?" + "\\]",
+						Pattern.CASE_INSENSITIVE);
+
+		String[] map = new String[CODE_COUNT];
+		char[] chars = new char[3];
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				resource, "UTF-8"));
+
+		for (;;) {
+			String line = reader.readLine();
+			if (line == null)
+				break;
+
+			line = line.trim();
+			if (line.length() == 0)
+				continue;
+			if (line.startsWith("#"))
+				continue;
+
+			Matcher matcher = P.matcher(line);
+			if (matcher.find()) {
+				int code = Integer.parseInt(matcher.group(1), 16);
+				int len;
+
+				for (len = 1; len < matcher.groupCount(); len++) {
+					String hex = matcher.group(len + 1);
+					if (hex == null)
+						break;
+
+					chars[len - 1] = (char) Integer.parseInt(hex, 16);
+				}
+
+				map[code] = new String(chars, 0, len - 1);
+			}
+		}
+		return map;
+	}
+
+	static void write(String[] map, OutputStream output) throws IOException {
+		DataOutputStream data = new DataOutputStream(output);
+		int count = 0;
+		for (String s : map)
+			count += s == null ? 0 : s.length();
+
+		data.writeInt(MAGIC);
+		data.writeInt(count);
+		for (String s : map)
+			data.writeByte(s == null ? 0 : s.length());
+		for (String s : map) {
+			if (s != null)
+				data.writeChars(s);
+		}
+		data.flush();
+	}
+
+	/**
+	 * hnc2unicode.bin 을 한번에 읽는다
+	 */
+	static Table read(InputStream input) throws IOException {
+		DataInputStream data = new DataInputStream(input);
+		if (data.readInt() != MAGIC)
+			throw new IOException("Invalid " + TABLE);
+		int count = data.readInt();
+
+		byte[] bytes = new byte[CODE_COUNT + count * 2];
+		data.readFully(bytes);
+
+		Table table = new Table();
+		table.offsets = new int[CODE_COUNT + 1];
+		for (int code = 0; code < CODE_COUNT; code++)
+			table.offsets[code + 1] = table.offsets[code] + bytes[code];
+		if (table.offsets[CODE_COUNT] != count)
+			throw new IOException("Invalid " + TABLE);
+
+		table.chars = new char[count];
+		ByteBuffer.wrap(bytes, CODE_COUNT, count * 2).asCharBuffer().get(table.chars);
+		return table;
+	}
+
+	/**
+	 * HNC 코드 c 의 유니코드 문자는 chars[offsets[c], offsets[c + 1])
+	 */
+	static class Table {
+		char[] chars;
+		int[] offsets;
+
+		int length(int code) {
+			return offsets[code + 1] - offsets[code];
+		}
+
+		static Table of(String[] map) {
+			Table table = new Table();
+			table.offsets = new int[CODE_COUNT + 1];
+			for (int code = 0; code < CODE_COUNT; code++)
+				table.offsets[code + 1] = table.offsets[code] + (map[code] == null ? 0 : map[code].length());
+			table.chars = new char[table.offsets[CODE_COUNT]];
+			for (int code = 0; code < CODE_COUNT; code++) {
+				if (map[code] != null)
+					map[code].getChars(0, map[code].length(), table.chars, table.offsets[code]);
+			}
+			return table;
+		}
+	}
+}
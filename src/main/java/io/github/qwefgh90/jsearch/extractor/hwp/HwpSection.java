@@ -0,0 +1,53 @@
+package io.github.qwefgh90.jsearch.extractor.hwp;
+
+/**
+ * HWP 5.0 문서의 Section (BodyText/Section0, ViewText/Section1 ...)
+ * @author qwefgh90
+ *
+ */
+public class HwpSection {
+	private final int index;
+	private final String name;
+	private final long size;
+	private final boolean encrypted;
+
+	HwpSection(int index, String name, long size, boolean encrypted) {
+		this.index = index;
+		this.name = name;
+		this.size = size;
+		this.encrypted = encrypted;
+	}
+
+	/**
+	 * @return Section 번호. SectionN 의 N
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return BodyText/Section0 형식의 경로
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return 저장된 (압축, 암호화된) 크기
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return 배포용 문서의 ViewText 인가?
+	 */
+	public boolean isEncrypted() {
+		return encrypted;
+	}
+
+	@Override
+	public String toString() {
+		return name + "(" + size + ")";
+	}
+}
@@ -24,11 +24,14 @@
  */
 package io.github.qwefgh90.jsearch.extractor.hwp;
 
+import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
-import org.apache.poi.util.LittleEndian;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,17 +40,37 @@ import org.slf4j.LoggerFactory;
  * the HWP file format open specification by Hancom, Inc.
  * http://www.hancom.co.kr/userofficedata.userofficedataList.do?menuFlag=3
  * 한글과컴퓨터의 한/글 문서 파일(.hwp) 공개 문서를 참고하여 개발하였습니다.
+ * <br><br>
+ * 재사용하는 LITTLE_ENDIAN ByteBuffer 에서 값을 읽는다.
+ * InputStream 은 BUFFER_SIZE 만큼 한번에 채우고,
+ * ByteBuffer(메모리 맵 파일 등)는 복사 없이 그대로 읽는다.
  * @author qwefgh90
  *
  */
 class HwpStreamReader {
+	private static final int BUFFER_SIZE = 8 * 1024;
+
 	private Logger log = LoggerFactory.getLogger(getClass());
 	private InputStream input;
-	private byte[] buf;
+	private ByteBuffer buf;
+	private long consumed = 0; // buf 앞에서 이미 읽은 바이트 수
+	private long limit = Long.MAX_VALUE;
 
 	public HwpStreamReader(InputStream inputStream) {
 		this.input = inputStream;
-		buf = new byte[4];
+		buf = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		buf.limit(0);
+	}
+
+	/**
+	 * position 부터 limit 까지 읽는다. 원본 buffer 의 position 은 바뀌지 않는다.
+	 * 
+	 * @param buffer
+	 *            데이터 (MappedByteBuffer 가능)
+	 */
+	public HwpStreamReader(ByteBuffer buffer) {
+		this.input = null;
+		buf = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
 	}
 
 	/**
@@ -57,7 +80,7 @@ class HwpStreamReader {
 	 * @throws IOException
 	 */
 	public boolean available() throws IOException {
-		return input.available() > 0;
+		return buf.hasRemaining() || fill(1) > 0;
 	}
 
 	/**
@@ -67,10 +90,10 @@ class HwpStreamReader {
 	 * @throws IOException
 	 */
 	public short uint8() throws IOException {
-		if (ensure(1) == 0)
+		if (!ensure(1))
 			return -1;
 
-		return LittleEndian.getUByte(buf);
+		return (short) (buf.get() & 0xFF);
 	}
 
 	/**
@@ -80,10 +103,10 @@ class HwpStreamReader {
 	 * @throws IOException
 	 */
 	public int uint16() throws IOException {
-		if (ensure(2) == 0)
+		if (!ensure(2))
 			return -1;
 
-		return LittleEndian.getUShort(buf);
+		return buf.getShort() & 0xFFFF;
 	}
 
 	/**
@@ -99,15 +122,36 @@ class HwpStreamReader {
 
 		int[] uints = new int[i];
 		for (int ii = 0; ii < i; ii++) {
-			if (ensure(2) == 0)
+			if (!ensure(2))
 				throw new EOFException();
 
-			uints[ii] = LittleEndian.getUShort(buf);
+			uints[ii] = buf.getShort() & 0xFFFF;
 		}
 
 		return uints;
 	}
 
+	/**
+	 * unsigned 2 byte 를 count 개 만큼 dest 에 읽는다
+	 * 
+	 * @param dest
+	 * @param offset
+	 * @param count
+	 * @throws IOException
+	 */
+	public void uint16(char[] dest, int offset, int count) throws IOException {
+		while (count > 0) {
+			if (buf.remaining() < 2 && !ensure(2))
+				throw new EOFException();
+
+			int n = Math.min(count, buf.remaining() / 2);
+			buf.asCharBuffer().get(dest, offset, n);
+			buf.position(buf.position() + n * 2);
+			offset += n;
+			count -= n;
+		}
+	}
+
 	/**
 	 * unsigned 4 byte
 	 * 
@@ -115,10 +159,28 @@ class HwpStreamReader {
 	 * @throws IOException
 	 */
 	public long uint32() throws IOException {
-		if (ensure(4) == 0)
+		if (!ensure(4))
 			return -1;
 
-		return LittleEndian.getUInt(buf);
+		return buf.getInt() & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * @return 지금까지 읽거나 건너뛴 바이트 수
+	 */
+	public long position() {
+		return consumed + buf.position();
+	}
+
+	/**
+	 * ensureSkip 으로 position 이 limit 을 넘을 수 없다. 잘못된 길이 값으로 끝없이
+	 * 건너뛰는 것을 막는다.
+	 * 
+	 * @param limit
+	 *            데이터 길이의 상한
+	 */
+	public void setLimit(long limit) {
+		this.limit = limit;
 	}
 
 	/**
@@ -128,7 +190,29 @@ class HwpStreamReader {
 	 * @throws IOException
 	 */
 	public long skip(long n) throws IOException {
-		return input.skip(n);
+		if (n <= 0)
+			return 0;
+
+		long skipped = Math.min(n, buf.remaining());
+		buf.position(buf.position() + (int) skipped);
+		if (input == null)
+			return skipped;
+
+		// InputStream.skip 은 요청보다 적게 건너뛸 수 있다
+		while (skipped < n) {
+			long s = input.skip(n - skipped);
+			if (s <= 0) {
+				// skip 을 지원하지 않거나 끝. 읽어서 버린다
+				if (fill(1) == 0)
+					break;
+				s = Math.min(n - skipped, buf.remaining());
+				buf.position(buf.position() + (int) s);
+			} else {
+				consumed += s;
+			}
+			skipped += s;
+		}
+		return skipped;
 	}
 
 	/**
@@ -138,6 +222,9 @@ class HwpStreamReader {
 	 * @throws IOException
 	 */
 	public void ensureSkip(long n) throws IOException {
+		if (n < 0 || n > limit - position())
+			throw new IOException("Invalid length " + n + " at " + position());
+
 		long skipped = skip(n);
 		if (n != skipped) {
 			log.error("Skip failed {} => {}", n, skipped);
@@ -146,35 +233,64 @@ class HwpStreamReader {
 	}
 
 	/**
-	 * count만큼 바이트를 읽는다. InflaterInputStream의 경우 한번에 count만큼 read가 안되는 경우가 있다.
+	 * 아직 읽지 않은 데이터를 InputStream 으로 돌려준다. 이후 이 reader 는 사용하지 않는다.
+	 * (압축된 본문처럼 중간부터 다른 스트림으로 읽어야 할 때)
+	 * 
+	 * @return
+	 */
+	public InputStream remaining() {
+		byte[] rest = new byte[buf.remaining()];
+		buf.get(rest);
+		InputStream buffered = new ByteArrayInputStream(rest);
+		return input == null ? buffered : new SequenceInputStream(buffered, input);
+	}
+
+	/**
+	 * count만큼 바이트가 버퍼에 있도록 채운다. InflaterInputStream의 경우 한번에 count만큼 read가 안되는 경우가 있다.
 	 * 그래서 count만큼 읽을 때까지 루프를 실행한다
 	 * 
 	 * @param count
-	 * @return
+	 * @return 데이터가 끝났으면 false
 	 * @throws IOException
 	 * @throws EOFException
+	 *             count 보다 적게 남았을 경우
 	 */
-	private int ensure(int count) throws IOException, EOFException {
-		int total = 0;
-		while (total < count) {
-			// if (total > 0) {
-			// log.warn("한번에 읽기 실패 {}/{}. 다시 읽기 시도함 {}", total, count, input);
-			// }
-
-			int read = input.read(buf, total, count - total);
-			if (read <= 0)
-				break;
-
-			total += read;
-		}
+	private boolean ensure(int count) throws IOException, EOFException {
+		if (buf.remaining() >= count)
+			return true;
 
+		int total = fill(count);
 		if (total == 0) {
 			// end
+			return false;
 		} else if (total < count) {
 			// unexpected end
 			throw new EOFException();
 		}
+		return true;
+	}
 
-		return total;
+	/**
+	 * 남은 데이터를 앞으로 옮기고 버퍼를 채운다
+	 * 
+	 * @return 버퍼에 남은 바이트 수 (count 이상이거나 스트림 끝)
+	 */
+	private int fill(int count) throws IOException {
+		if (input == null)
+			return buf.remaining();
+
+		consumed += buf.position();
+		buf.compact();
+		try {
+			while (buf.position() < count) {
+				int read = input.read(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+				if (read <= 0)
+					break;
+				buf.position(buf.position() + read);
+			}
+		} finally {
+			buf.flip();
+		}
+		return buf.remaining();
 	}
-}
\ No newline at end of file
+}
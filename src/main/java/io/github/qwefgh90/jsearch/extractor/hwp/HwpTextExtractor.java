@@ -24,14 +24,23 @@
  */
 package io.github.qwefgh90.jsearch.extractor.hwp;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.github.qwefgh90.jsearch.extractor.DocumentMetadata;
+
 /**
  * This software has been developed with reference to
  * the HWP file format open specification by Hancom, Inc.
@@ -43,20 +52,132 @@ import org.slf4j.LoggerFactory;
 abstract class HwpTextExtractor {
 	protected static Logger log = LoggerFactory.getLogger(HwpTextExtractor.class);
 
+	// Compound File (HWP 5.0)
+	private static final byte[] OLE2_MAGIC = new byte[] { (byte) 0xD0,
+			(byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A,
+			(byte) 0xE1 };
+	private static final int HEAD_SIZE = 32;
+
 	public static boolean extract(File source, Writer writer)
 			throws FileNotFoundException, IOException {
+		return extract(source, writer, null);
+	}
+
+	/**
+	 * 처음 32 바이트로 HWP 5.0 (Compound File) 과 HWP 3.0 을 구분하고,
+	 * 열린 파일 그대로 해당 추출기에 넘긴다
+	 * 
+	 * @param executor
+	 *            HWP 5.0 의 Section 을 동시에 해석할 pool. null 이면 순서대로 해석한다
+	 * @return HWP 문서가 아니면 false
+	 */
+	public static boolean extract(File source, Writer writer,
+			ExecutorService executor) throws FileNotFoundException,
+			IOException {
 		if (source == null || writer == null)
 			throw new IllegalArgumentException();
 		if (!source.exists())
 			throw new FileNotFoundException();
 
-		// 먼저 V5 부터 시도
-		boolean success = HwpTextExtractorV5.extractText(source, writer);
+		FileChannel channel = FileChannel.open(source.toPath(),
+				StandardOpenOption.READ);
+		try {
+			byte[] head = readHead(channel);
 
-		// 아니라면 V3 시도
-		if (!success)
-			success = HwpTextExtractorV3.extractText(source, writer);
+			if (startsWith(head, OLE2_MAGIC)) {
+				// NPOIFSFileSystem 은 현재 위치부터 헤더를 읽는다
+				channel.position(0);
+				return HwpTextExtractorV5.extractText(channel, writer, executor);
+			}
+
+			if (HwpTextExtractorV3.isSignature(head)) {
+				int offset = HwpTextExtractorV3.getSignatureLength();
+				channel.position(offset);
+				HwpTextExtractorV3.extractText(Channels.newInputStream(channel),
+						channel.size() - offset, writer);
+				return true;
+			}
+
+			log.debug("HWP 포맷이 아님 {}", source);
+			return false;
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * 메모리에 있는 문서에서 텍스트 추출. 임시 파일을 만들지 않는다
+	 * 
+	 * @return HWP 문서가 아니면 false
+	 */
+	public static boolean extract(byte[] data, Writer writer,
+			ExecutorService executor) throws IOException {
+		if (data == null || writer == null)
+			throw new IllegalArgumentException();
+
+		if (startsWith(data, OLE2_MAGIC))
+			return HwpTextExtractorV5.extractText(data, writer, executor);
+
+		if (HwpTextExtractorV3.isSignature(data)) {
+			int offset = HwpTextExtractorV3.getSignatureLength();
+			HwpTextExtractorV3.extractText(new ByteArrayInputStream(data,
+					offset, data.length - offset), data.length - offset, writer);
+			return true;
+		}
+
+		log.debug("HWP 포맷이 아님");
+		return false;
+	}
+
+	/**
+	 * 본문은 읽지 않고 문서 정보와 요약 정보만 읽는다
+	 * 
+	 * @return HWP 문서가 아니면 null
+	 */
+	public static DocumentMetadata extractMetadata(File source)
+			throws FileNotFoundException, IOException {
+		if (source == null)
+			throw new IllegalArgumentException();
+		if (!source.exists())
+			throw new FileNotFoundException();
+
+		FileChannel channel = FileChannel.open(source.toPath(),
+				StandardOpenOption.READ);
+		try {
+			byte[] head = readHead(channel);
+
+			if (startsWith(head, OLE2_MAGIC)) {
+				channel.position(0);
+				return HwpTextExtractorV5.extractMetadata(channel);
+			}
+
+			if (HwpTextExtractorV3.isSignature(head)) {
+				channel.position(HwpTextExtractorV3.getSignatureLength());
+				return HwpTextExtractorV3.extractMetadata(Channels
+						.newInputStream(channel));
+			}
+
+			log.debug("HWP 포맷이 아님 {}", source);
+			return null;
+		} finally {
+			channel.close();
+		}
+	}
+
+	private static byte[] readHead(FileChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(HEAD_SIZE);
+		while (buffer.hasRemaining() && channel.read(buffer) != -1)
+			;
+		return Arrays.copyOf(buffer.array(), buffer.position());
+	}
 
-		return success;
+	private static boolean startsWith(byte[] head, byte[] magic) {
+		if (head.length < magic.length)
+			return false;
+		for (int i = 0; i < magic.length; i++) {
+			if (head[i] != magic[i])
+				return false;
+		}
+		return true;
 	}
 }
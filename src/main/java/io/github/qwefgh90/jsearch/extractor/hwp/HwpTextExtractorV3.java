@@ -24,18 +24,19 @@
  */
 package io.github.qwefgh90.jsearch.extractor.hwp;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Writer;
 import java.util.Arrays;
-import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.github.qwefgh90.jsearch.extractor.DocumentMetadata;
+
 /**
  * This software has been developed with reference to
  * the HWP file format open specification by Hancom, Inc.
@@ -52,6 +53,11 @@ abstract class HwpTextExtractorV3 {
 	private static final byte[] HWP_V3_SIGNATURE = ("HWP Document File V3.00"
 			+ " \u001A\u0001\u0002\u0003\u0004\u0005").getBytes();
 
+	// 문단 리스트 안의 문단 리스트 (표 안의 표 등) 최대 깊이
+	private static final int MAX_DEPTH = 64;
+	// deflate 최대 압축률은 약 1032:1 이다
+	private static final long MAX_INFLATE_RATIO = 1032;
+
 	public static boolean extractText(File source, Writer writer)
 			throws IOException {
 		InputStream input = new FileInputStream(source);
@@ -72,7 +78,8 @@ abstract class HwpTextExtractorV3 {
 				return false;
 			}
 
-			extractText(input, writer);
+			extractText(input, source.length() - HWP_V3_SIGNATURE.length,
+					writer);
 
 			return true;
 		} finally {
@@ -86,11 +93,43 @@ abstract class HwpTextExtractorV3 {
 		}
 	}
 
-	private static void extractText(InputStream inputStream, Writer writer)
-			throws IOException {
+	/**
+	 * @param head
+	 *            파일의 처음 바이트들
+	 * @return 한글V3 시그니처인가?
+	 */
+	static boolean isSignature(byte[] head) {
+		if (head.length < HWP_V3_SIGNATURE.length)
+			return false;
+		for (int i = 0; i < HWP_V3_SIGNATURE.length; i++) {
+			if (head[i] != HWP_V3_SIGNATURE[i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return 시그니처 길이
+	 */
+	static int getSignatureLength() {
+		return HWP_V3_SIGNATURE.length;
+	}
+
+	/**
+	 * 시그니처 다음부터 텍스트 추출
+	 * 
+	 * @param inputStream
+	 *            시그니처를 읽은 스트림
+	 * @param length
+	 *            시그니처 이후의 파일 길이. 길이 값을 검증하는데 쓴다
+	 */
+	static void extractText(InputStream inputStream, long length,
+			Writer out) throws IOException {
+		TextBuffer writer = new TextBuffer(out);
 		// 시그니처를 위해서 30바이트 읽은 상태
 
 		HwpStreamReader input = new HwpStreamReader(inputStream);
+		input.setLimit(length);
 
 		// 문서 정보 p.72
 
@@ -115,50 +154,163 @@ abstract class HwpTextExtractorV3 {
 		input.ensureSkip(blockSize);
 
 		// 압축 풀기
+		InputStream inflated = null;
 		if (compressed) {
 			log.info("본문 압축 해제");
-			input = new HwpStreamReader(new InflaterInputStream(inputStream,
-					new Inflater(true)));
+			long deflated = length - input.position();
+			inflated = InflaterPool.inflate(input.remaining());
+			input = new HwpStreamReader(inflated);
+			input.setLimit(deflated * MAX_INFLATE_RATIO);
 		}
 
-		// p.73 글꼴이름 건너뛰기
-		for (int ii = 0; ii < 7; ii++)
-			input.ensureSkip(input.uint16() * 40);
+		try {
+			// p.73 글꼴이름 건너뛰기
+			for (int ii = 0; ii < 7; ii++)
+				input.ensureSkip(input.uint16() * 40);
 
-		// p.74 스타일 건너뛰기
-		input.ensureSkip(input.uint16() * (20 + 31 + 187));
+			// p.74 스타일 건너뛰기
+			input.ensureSkip(input.uint16() * (20 + 31 + 187));
 
-		// <문단 리스트> ::= <문단>+ <빈문단>
-		// int paraCount = 0;
-		while (input.available()) {
-			// paraCount++;
-			// log.debug("문단 {}", paraCount);
-			if (!writeParaText(input, writer))
-				break;
+			writeParaList(input, writer);
+			writer.flush();
+		} finally {
+			writer.report();
+			// Inflater 를 pool 에 돌려준다
+			if (inflated != null)
+				inflated.close();
+		}
+	}
+
+	/**
+	 * 문서 정보와 문서 요약만 읽는다. 본문은 압축을 풀지 않는다.
+	 *
+	 * @param inputStream
+	 *            시그니처를 읽은 스트림
+	 */
+	static DocumentMetadata extractMetadata(InputStream inputStream)
+			throws IOException {
+		HwpStreamReader input = new HwpStreamReader(inputStream);
+		DocumentMetadata metadata = new DocumentMetadata();
+		metadata.setProperty("hwp:version", "3.0");
+
+		// 문서 정보 p.72
+		input.ensureSkip(96);
+		metadata.setProperty("hwp:encrypted",
+				String.valueOf(input.uint16() != 0));
+		input.ensureSkip(30); // 128
+
+		// 문서 요약 p.72. hchar[56] 이 9개
+		metadata.setTitle(readSummaryString(input));
+		metadata.setSubject(readSummaryString(input));
+		metadata.setAuthor(readSummaryString(input));
+		metadata.setProperty("hwp:date", readSummaryString(input));
+		String keyword1 = readSummaryString(input);
+		String keyword2 = readSummaryString(input);
+		metadata.setKeywords((keyword1 + " " + keyword2).trim());
+		StringBuilder comments = new StringBuilder();
+		for (int i = 0; i < 3; i++)
+			comments.append(readSummaryString(input)).append('\n');
+		metadata.setComments(comments.toString());
+		return metadata;
+	}
+
+	/**
+	 * 문서 요약의 hchar[56]. 0 이후는 버린다
+	 */
+	private static String readSummaryString(HwpStreamReader input)
+			throws IOException {
+		char[] chars = new char[56 * 3];
+		int length = 0;
+		boolean end = false;
+		for (int i = 0; i < 56; i++) {
+			int c = input.uint16();
+			if (c == 0)
+				end = true;
+			if (end || c < 32)
+				continue;
+			int n = Hnc2String.convert(c, chars, length);
+			if (n == 0)
+				chars[length++] = '?';
+			length += n;
+		}
+		return new String(chars, 0, length);
+	}
+
+	/**
+	 * 본문의 &lt;문단 리스트&gt; ::= &lt;문단&gt;+ &lt;빈문단&gt;
+	 * <br><br>
+	 * 표, 그림, 머리말/꼬리말, 각주/미주 안의 문단 리스트는 재귀 호출 대신
+	 * 깊이마다 상태를 저장하는 stack 으로 처리한다. 깊이는 MAX_DEPTH 를 넘을 수 없다.
+	 * 
+	 * @param input
+	 * @param writer
+	 * @throws IOException
+	 */
+	private static void writeParaList(HwpStreamReader input, TextBuffer writer)
+			throws IOException {
+		int[] lists = new int[MAX_DEPTH]; // 깊이마다 남은 문단 리스트 수
+		int[] nChars = new int[MAX_DEPTH]; // 읽는 중인 문단의 글자 수. 0 이면 문단 사이
+		int[] nRead = new int[MAX_DEPTH]; // 읽는 중인 문단에서 읽은 글자 수
+		int depth = 0;
+		lists[0] = 1;
+
+		while (depth >= 0) {
+			if (nChars[depth] == 0) {
+				// 본문은 파일 끝에서도 끝난다
+				if (depth == 0 && !input.available())
+					break;
+
+				int n = readParaHeader(input);
+				if (n < 0 && depth > 0)
+					throw new EOFException();
+				if (n <= 0) {
+					// # 빈문단이면 리스트 끝
+					if (--lists[depth] == 0)
+						depth--;
+					continue;
+				}
+				nChars[depth] = n;
+				nRead[depth] = 0;
+			}
+
+			int children = writeChars(input, writer, nChars, nRead, depth);
+			if (nRead[depth] >= nChars[depth])
+				nChars[depth] = 0;
+
+			if (children > 0) {
+				if (depth + 1 == MAX_DEPTH)
+					throw new IOException("Too deep paragraph list");
+				depth++;
+				lists[depth] = children;
+				nChars[depth] = 0;
+			}
 		}
 	}
 
-	private static boolean writeParaText(HwpStreamReader input, Writer writer)
+	/**
+	 * 문단 정보를 읽는다
+	 * 
+	 * @return 글자 수. 빈문단이면 0, 파일 끝이면 -1
+	 */
+	private static int readParaHeader(HwpStreamReader input)
 			throws IOException {
 		// # 문단 정보
 		short prev_paragraph_shape = input.uint8();
+		if (prev_paragraph_shape == -1)
+			return -1;
 		int n_chars = input.uint16();
 		int n_lines = input.uint16();
 		short char_shape_included = input.uint8();
 
-		StringBuilder buf = new StringBuilder();
-
 		// p.77 기타 플래그부터..
 		input.ensureSkip(1 + 4 + 1 + 31);
 		// # 여기까지 43 bytes
 		if (prev_paragraph_shape == 0 && n_chars > 0)
 			input.ensureSkip(187);
 
-		// # 빈문단이면 false 반환
-		if (n_chars == 0) {
-			// log.debug("빈문단");
-			return false;
-		}
+		// # 빈문단
+		if (n_chars <= 0)
+			return n_chars;
 
 		// # 줄 정보
 		input.ensureSkip(n_lines * 14);
@@ -172,14 +324,22 @@ abstract class HwpTextExtractorV3 {
 			}
 		}
 
-		log.trace("n_chars = {}", n_chars);
-
-		// # 글자들
-		int n_chars_read = 0;
+		return n_chars;
+	}
 
-		while (n_chars_read < n_chars) {
+	/**
+	 * 문단의 글자들을 읽는다. 안에 문단 리스트가 있는 글자를 만나면 멈춘다.
+	 * 
+	 * @return 이어서 읽어야 할 문단 리스트 수. 문단 끝까지 읽었으면 0
+	 */
+	private static int writeChars(HwpStreamReader input, TextBuffer writer,
+			int[] nChars, int[] nRead, int depth) throws IOException {
+		int n_chars = nChars[depth];
+		int n_chars_read = nRead[depth];
+		int children = 0;
+
+		chars: while (n_chars_read < n_chars) {
 			int c = input.uint16(); // # 2바이트씩 읽는다.
-			// log.debug("구분 : {}", Integer.toHexString(c));
 			n_chars_read++;
 
 			switch (c) {
@@ -198,7 +358,7 @@ abstract class HwpTextExtractorV3 {
 			case 9: // tab
 				n_chars_read += 3;
 				input.ensureSkip(6);
-				writer.write('\t');
+				writer.append('\t');
 				break;
 			case 10: // 표
 				n_chars_read += 3;
@@ -210,17 +370,9 @@ abstract class HwpTextExtractorV3 {
 				input.ensureSkip(2);
 				input.ensureSkip(27 * n_cells);
 
-				// # <셀 문단 리스트>+
-				for (int ii = 0; ii < n_cells; ii++) {
-					// # <셀 문단 리스트> ::= <셀 문단>+ <빈문단>
-					// log.debug("셀 {}/{}", ii, n_cells);
-					while (writeParaText(input, writer))
-						;
-				}
-				// # <캡션 문단 리스트> ::= <캡션 문단>+ <빈문단>
-				while (writeParaText(input, writer))
-					;
-				break;
+				// # <셀 문단 리스트>+ <캡션 문단 리스트>
+				children = n_cells + 1;
+				break chars;
 
 			case 11: // 그림
 			{
@@ -230,12 +382,11 @@ abstract class HwpTextExtractorV3 {
 				input.ensureSkip(344);
 				input.ensureSkip(len);
 				// # <캡션 문단 리스트> ::= <캡션 문단>+ <빈문단>
-				while (writeParaText(input, writer))
-					;
+				children = 1;
+				break chars;
 			}
-				break;
 			case 13: // # 글자들 끝
-				writer.write('\n');
+				writer.append('\n');
 				break;
 			case 16: // # 머리말/꼬리말
 				n_chars_read += 3;
@@ -243,18 +394,16 @@ abstract class HwpTextExtractorV3 {
 				input.ensureSkip(10);
 
 				// # <문단 리스트> ::= <문단>+ <빈문단>
-				while (writeParaText(input, writer))
-					;
-				break;
+				children = 1;
+				break chars;
 
 			case 17: // # 각주/미주
 				n_chars_read += 3;
 				input.ensureSkip(6);
 				// # 각주/미주 정보 건너 뛰기
 				input.ensureSkip(14);
-				while (writeParaText(input, writer))
-					;
-				break;
+				children = 1;
+				break chars;
 			case 18:
 			case 19:
 			case 20:
@@ -282,27 +431,75 @@ abstract class HwpTextExtractorV3 {
 				break;
 			default:
 				if (c >= 0x0020 && c <= 0xffff) {// # hnc code range
-					String s = Hnc2String.convert(c);
-					if (s == null) {
-						log.warn("매핑 문자 없음 {}", Integer.toHexString(c));
-						writer.write(unknown(c));
-					} else {
-						buf.append(s);
-						writer.write(s);
-					}
+					writer.appendHnc(c);
+				} else if (c == -1) {
+					throw new EOFException();
 				} else {
-					log.error("특수 문자 ? : {}", Integer.toHexString(c));
+					writer.special++;
 					// throw new NotImplementedException();
 				}
 			}
 		}
 
-		log.trace(">>> {}", buf.toString());
-
-		return true;
+		nRead[depth] = n_chars_read;
+		return children;
 	}
 
-	private static String unknown(int c) {
-		return String.format("?+0x%1$04x", c);
+	/**
+	 * 문자를 재사용하는 char[] 에 모아서 한번에 writer 에 쓴다.
+	 * 매핑 없는 문자와 특수 문자는 문자마다 로그를 남기지 않고 개수만 센다
+	 */
+	private static class TextBuffer {
+		private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+		private final Writer writer;
+		private final char[] chars = new char[8 * 1024];
+		private int length = 0;
+		int unmapped = 0;
+		int special = 0;
+
+		private TextBuffer(Writer writer) {
+			this.writer = writer;
+		}
+
+		void append(char c) throws IOException {
+			if (length == chars.length)
+				flush();
+			chars[length++] = c;
+		}
+
+		/**
+		 * HNC 코드를 유니코드로. 매핑 문자가 없으면 ?+0x0000 형식으로 쓴다
+		 */
+		void appendHnc(int c) throws IOException {
+			if (chars.length - length < 8)
+				flush();
+			int n = Hnc2String.convert(c, chars, length);
+			if (n > 0) {
+				length += n;
+				return;
+			}
+
+			unmapped++;
+			chars[length++] = '?';
+			chars[length++] = '+';
+			chars[length++] = '0';
+			chars[length++] = 'x';
+			for (int shift = 12; shift >= 0; shift -= 4)
+				chars[length++] = HEX[(c >> shift) & 0xF];
+		}
+
+		void flush() throws IOException {
+			if (length > 0)
+				writer.write(chars, 0, length);
+			length = 0;
+		}
+
+		void report() {
+			if (unmapped > 0)
+				log.warn("매핑 문자 없음 {}개", unmapped);
+			if (special > 0)
+				log.error("특수 문자 ? : {}개", special);
+		}
 	}
 }
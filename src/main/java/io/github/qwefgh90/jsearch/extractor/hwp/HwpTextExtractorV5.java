@@ -24,24 +24,45 @@
  */
 package io.github.qwefgh90.jsearch.extractor.hwp;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Deque;
 import java.util.Iterator;
-import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.crypto.Cipher;
-import javax.crypto.CipherInputStream;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.SecretKeySpec;
 
+import org.apache.poi.hpsf.HPSFException;
+import org.apache.poi.hpsf.Property;
+import org.apache.poi.hpsf.PropertySet;
 import org.apache.poi.poifs.filesystem.DirectoryEntry;
 import org.apache.poi.poifs.filesystem.DirectoryNode;
 import org.apache.poi.poifs.filesystem.DocumentEntry;
@@ -49,10 +70,13 @@ import org.apache.poi.poifs.filesystem.DocumentInputStream;
 import org.apache.poi.poifs.filesystem.Entry;
 import org.apache.poi.poifs.filesystem.NDocumentInputStream;
 import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.LittleEndian;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.github.qwefgh90.jsearch.extractor.DocumentMetadata;
+
 /**
  * This software has been developed with reference to
  * the HWP file format open specification by Hancom, Inc.
@@ -76,6 +100,7 @@ abstract class HwpTextExtractorV5 {
 			12, 14, 15, 16, 17, 18, 21, 22, 23 };
 
 	private static final int HWPTAG_BEGIN = 0x010;
+	private static final String SUMMARY_INFORMATION = "\u0005HwpSummaryInformation";
 
 	/**
 	 * HWP 파일에서 텍스트 추출
@@ -88,19 +113,115 @@ abstract class HwpTextExtractorV5 {
 	 */
 	public static boolean extractText(File source, Writer writer)
 			throws FileNotFoundException, IOException {
+		return extractText(source, writer, null);
+	}
+
+	/**
+	 * HWP 파일에서 텍스트 추출
+	 * 
+	 * @param source
+	 * @param writer
+	 * @param executor
+	 *            Section 을 동시에 해석할 pool. null 이면 순서대로 해석한다
+	 * @return
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+	public static boolean extractText(File source, Writer writer,
+			ExecutorService executor) throws FileNotFoundException,
+			IOException {
 		if (source == null)
 			throw new IllegalArgumentException();
 		if (!source.exists())
 			throw new FileNotFoundException();
 
-		NPOIFSFileSystem fs = null;
+		FileChannel channel = FileChannel.open(source.toPath(),
+				StandardOpenOption.READ);
+		try {
+			return extractText(channel, writer, executor);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * 이미 열린 파일에서 텍스트 추출. channel 은 닫힌다.
+	 * 
+	 * @param channel
+	 *            Compound File
+	 * @param writer
+	 * @param executor
+	 *            Section 을 동시에 해석할 pool. null 이면 순서대로 해석한다
+	 * @return HWP 5.0 문서가 아니면 false
+	 * @throws IOException
+	 */
+	static boolean extractText(FileChannel channel, Writer writer,
+			ExecutorService executor) throws IOException {
+		return extractText(channel, writer, executor, null);
+	}
+
+	/**
+	 * 선택한 Section 만 텍스트 추출
+	 * 
+	 * @param selected
+	 *            Section 번호들. null 이면 모든 Section
+	 * @return HWP 5.0 문서가 아니면 false
+	 * @throws IOException
+	 */
+	static boolean extractSections(File source, Writer writer,
+			Set<Integer> selected) throws IOException {
+		FileChannel channel = FileChannel.open(source.toPath(),
+				StandardOpenOption.READ);
+		try {
+			return extractText(channel, writer, null, selected);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * 메모리에 있는 문서에서 텍스트 추출 (압축 파일 안의 문서 등)
+	 * 
+	 * @param data
+	 *            Compound File
+	 * @return HWP 5.0 문서가 아니면 false
+	 * @throws IOException
+	 */
+	static boolean extractText(byte[] data, Writer writer,
+			ExecutorService executor) throws IOException {
+		NPOIFSFileSystem fs;
+		try {
+			fs = new NPOIFSFileSystem(new ByteArrayInputStream(data));
+		} catch (IOException e) {
+			log.warn("파일정보 확인 중 오류. HWP 포맷이 아닌 것으로 간주함", e);
+			return false;
+		}
+		return extractText(fs, writer, executor, null);
+	}
+
+	private static boolean extractText(FileChannel channel, Writer writer,
+			ExecutorService executor, Set<Integer> selected) throws IOException {
+		NPOIFSFileSystem fs;
+		try {
+			// 우선은 Compound File
+			fs = new NPOIFSFileSystem(channel, true);
+		} catch (IOException e) {
+			log.warn("파일정보 확인 중 오류. HWP 포맷이 아닌 것으로 간주함", e);
+			return false;
+		}
+		return extractText(fs, writer, executor, selected);
+	}
+
+	/**
+	 * fs 는 닫힌다
+	 */
+	private static boolean extractText(NPOIFSFileSystem fs, Writer writer,
+			ExecutorService executor, Set<Integer> selected) throws IOException {
 		try {
 			FileHeader header;
 
 			// HWP Document가 맞는지 확인한다
 			try {
-				// 우선은 Compound File
-				fs = new NPOIFSFileSystem(source);
 				header = getHeader(fs);
 			} catch (IOException e) {
 				log.warn("파일정보 확인 중 오류. HWP 포맷이 아닌 것으로 간주함", e);
@@ -115,24 +236,171 @@ abstract class HwpTextExtractorV5 {
 
 			// 배포용 문서.. BodyText 가 아닌 ViewText에 Section 이 존재
 			// https://groups.google.com/forum/#!msg/hwp-foss/d2KL2ypR89Q/lCTkebPcIYYJ
-			if (header.viewtext) {
-				extractViewText(header, fs, writer);
-			} else {
-				extractBodyText(header, fs, writer);
-			}
+			extractSections(header, fs, header.viewtext ? "ViewText"
+					: "BodyText", writer, executor, selected);
 
 			return true;
 		} finally {
-			if (fs != null) {
+			try {
+				fs.close();
+			} catch (IOException e) {
+				log.warn("Exception", e);
+			}
+		}
+	}
+
+	/**
+	 * Section 목록
+	 * 
+	 * @param source
+	 * @return Section 번호 순서의 목록. HWP 5.0 문서가 아니면 null
+	 * @throws IOException
+	 */
+	static List<HwpSection> listSections(File source) throws IOException {
+		NPOIFSFileSystem fs;
+		FileHeader header;
+		try {
+			fs = new NPOIFSFileSystem(source, true);
+		} catch (IOException e) {
+			log.debug("HWP 5.0 포맷이 아님 {}", source);
+			return null;
+		}
+
+		try {
+			try {
+				header = getHeader(fs);
+			} catch (IOException e) {
+				log.debug("HWP 5.0 포맷이 아님 {}", source);
+				return null;
+			}
+			if (header == null)
+				return null;
+
+			String storage = header.viewtext ? "ViewText" : "BodyText";
+			List<HwpSection> result = new ArrayList<HwpSection>();
+			for (DocumentEntry entry : getSections(fs, storage)) {
+				long number = sectionNumber(entry.getName());
+				result.add(new HwpSection(number > Integer.MAX_VALUE ? -1
+						: (int) number, storage + "/" + entry.getName(),
+						entry.getSize(), header.viewtext));
+			}
+			return result;
+		} finally {
+			fs.close();
+		}
+	}
+
+	/**
+	 * FileHeader 와 문서 요약 정보(\005HwpSummaryInformation)만 읽는다.
+	 * BodyText 는 압축을 풀지 않는다. channel 은 닫힌다.
+	 *
+	 * @param channel
+	 *            Compound File
+	 * @return HWP 5.0 문서가 아니면 null
+	 * @throws IOException
+	 */
+	static DocumentMetadata extractMetadata(FileChannel channel)
+			throws IOException {
+		NPOIFSFileSystem fs;
+		FileHeader header;
+		try {
+			fs = new NPOIFSFileSystem(channel, true);
+		} catch (IOException e) {
+			log.debug("HWP 5.0 포맷이 아님", e);
+			return null;
+		}
+
+		try {
+			try {
+				header = getHeader(fs);
+			} catch (IOException e) {
+				log.debug("HWP 5.0 포맷이 아님", e);
+				return null;
+			}
+			if (header == null)
+				return null;
+
+			DocumentMetadata metadata = new DocumentMetadata();
+			metadata.setProperty("hwp:version", header.version.toString());
+			metadata.setProperty("hwp:compressed",
+					String.valueOf(header.compressed));
+			metadata.setProperty("hwp:encrypted",
+					String.valueOf(header.encrypted));
+			metadata.setProperty("hwp:distribution",
+					String.valueOf(header.viewtext));
+
+			if (fs.getRoot().hasEntry(SUMMARY_INFORMATION)) {
+				DocumentInputStream input = fs
+						.createDocumentInputStream(SUMMARY_INFORMATION);
 				try {
-					fs.close();
-				} catch (IOException e) {
-					log.warn("Exception", e);
+					readSummary(new PropertySet(input), metadata);
+				} catch (HPSFException e) {
+					// 요약 정보가 깨져도 FileHeader 는 돌려준다
+					log.warn("문서 요약 정보 해석 중 오류", e);
+				} finally {
+					input.close();
 				}
 			}
+			return metadata;
+		} finally {
+			fs.close();
 		}
 	}
 
+	/**
+	 * 문서 요약 정보 p.10. Property ID 는 OLE SummaryInformation 과 같다
+	 */
+	private static void readSummary(PropertySet summary,
+			DocumentMetadata metadata) {
+		for (Property property : summary.getFirstSection().getProperties()) {
+			Object value = property.getValue();
+			switch ((int) property.getID()) {
+			case 2:
+				metadata.setTitle(asString(value));
+				break;
+			case 3:
+				metadata.setSubject(asString(value));
+				break;
+			case 4:
+				metadata.setAuthor(asString(value));
+				break;
+			case 5:
+				metadata.setKeywords(asString(value));
+				break;
+			case 6:
+				metadata.setComments(asString(value));
+				break;
+			case 8:
+				metadata.setLastAuthor(asString(value));
+				break;
+			case 9:
+				metadata.setProperty("hwp:revision", asString(value));
+				break;
+			case 12:
+				if (value instanceof Date)
+					metadata.setCreated((Date) value);
+				break;
+			case 13:
+				if (value instanceof Date)
+					metadata.setModified((Date) value);
+				break;
+			case 14:
+				if (value instanceof Number)
+					metadata.setPageCount(((Number) value).intValue());
+				break;
+			case 20:
+				metadata.setProperty("hwp:date", asString(value));
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	private static String asString(Object value) {
+		return value == null ? null : value.toString();
+	}
+
 	/**
 	 * HWP의 FileHeader 추출
 	 * 
@@ -180,110 +448,218 @@ abstract class HwpTextExtractorV5 {
 	}
 
 	/**
-	 * 텍스트 추출
+	 * 텍스트 추출. executor 가 있으면 Section 마다 압축 해제와 해석을 동시에 하고,
+	 * 결과는 Section 순서대로 writer 에 쓴다. 메모리를 제한하기 위해 처리 중인 Section 은
+	 * 프로세서 수의 2배까지이고, 결과를 쓴 만큼 다음 Section 을 읽는다.
 	 * 
+	 * @param header
+	 * @param fs
+	 * @param storage
+	 *            BodyText 또는 ViewText(배포용 문서, 암호화됨)
 	 * @param writer
-	 * @param source
-	 * 
-	 * @return
+	 * @param executor
+	 *            null 이면 순서대로 처리
+	 * @param selected
+	 *            추출할 Section 번호들. null 이면 모든 Section
 	 * @throws IOException
 	 */
-	private static void extractBodyText(FileHeader header, NPOIFSFileSystem fs,
-			Writer writer) throws IOException {
-		DirectoryNode root = fs.getRoot();
-
-		// BodyText 읽기
-		Entry bodyText = root.getEntry("BodyText");
-		if (bodyText == null || !bodyText.isDirectoryEntry())
-			throw new IOException("Invalid BodyText");
+	private static void extractSections(FileHeader header, NPOIFSFileSystem fs,
+			String storage, Writer writer, ExecutorService executor,
+			Set<Integer> selected) throws IOException {
+		boolean encrypted = "ViewText".equals(storage);
+		List<DocumentEntry> sections = getSections(fs, storage);
+		if (selected != null) {
+			Iterator<DocumentEntry> iterator = sections.iterator();
+			while (iterator.hasNext()) {
+				long number = sectionNumber(iterator.next().getName());
+				if (number > Integer.MAX_VALUE
+						|| !selected.contains((int) number))
+					iterator.remove();
+			}
+		}
 
-		Iterator<Entry> iterator = ((DirectoryEntry) bodyText).getEntries();
-		while (iterator.hasNext()) {
-			Entry entry = iterator.next();
-			if (entry.getName().startsWith("Section")
-					&& entry instanceof DocumentEntry) {
+		if (executor == null) {
+			for (DocumentEntry entry : sections) {
 				log.debug("extract {}", entry.getName());
 
-				InputStream input = new NDocumentInputStream(
-						(DocumentEntry) entry);
+				InputStream input = new NDocumentInputStream(entry);
 				try {
-					if (header.compressed)
-						input = new InflaterInputStream(input, new Inflater(
-								true));
-
-					HwpStreamReader sectionStream = new HwpStreamReader(input);
-
-					extractText(sectionStream, writer);
+					input = openSection(input, header, encrypted);
+					extractText(new HwpStreamReader(input), writer);
 				} finally {
-					// 닫을 필요는 없을 것이다
+					// Inflater 를 pool 에 돌려준다
 					try {
 						input.close();
 					} catch (IOException e) {
 						log.error("있을 수 없는 일?", e);
 					}
 				}
-			} else {
-				log.warn("알수없는 Entry '{}'({})", entry.getName(), entry);
 			}
+			return;
+		}
+
+		// POIFS 는 thread safe 하지 않으므로 원본 바이트는 여기서 읽는다
+		int maxPending = Runtime.getRuntime().availableProcessors() * 2;
+		Deque<Future<String>> pending = new ArrayDeque<Future<String>>();
+		try {
+			for (DocumentEntry entry : sections) {
+				if (pending.size() >= maxPending)
+					writer.write(getResult(pending.poll()));
+				log.debug("extract {}", entry.getName());
+				pending.add(executor.submit(new SectionTask(header, encrypted,
+						readSection(entry))));
+			}
+			while (!pending.isEmpty())
+				writer.write(getResult(pending.poll()));
+		} finally {
+			// 오류나 중단(ExtractionStoppedException) 이후의 Section 은 필요없다
+			for (Future<String> result : pending)
+				result.cancel(true);
 		}
 	}
 
 	/**
-	 * 텍스트 추출
-	 * 
-	 * @param writer
-	 * @param source
-	 * 
-	 * @return
-	 * @throws IOException
+	 * Section0, Section1, ... Section10 순서로 정렬된 Section 목록
 	 */
-	private static void extractViewText(FileHeader header, NPOIFSFileSystem fs,
-			Writer writer) throws IOException {
+	private static List<DocumentEntry> getSections(NPOIFSFileSystem fs,
+			String storage) throws IOException {
 		DirectoryNode root = fs.getRoot();
+		if (!root.hasEntry(storage)
+				|| !root.getEntry(storage).isDirectoryEntry())
+			throw new IOException("Invalid " + storage);
 
-		// BodyText 읽기
-		Entry bodyText = root.getEntry("ViewText");
-		if (bodyText == null || !bodyText.isDirectoryEntry())
-			throw new IOException("Invalid ViewText");
-
-		Iterator<Entry> iterator = ((DirectoryEntry) bodyText).getEntries();
+		List<DocumentEntry> sections = new ArrayList<DocumentEntry>();
+		Iterator<Entry> iterator = ((DirectoryEntry) root.getEntry(storage))
+				.getEntries();
 		while (iterator.hasNext()) {
 			Entry entry = iterator.next();
 			if (entry.getName().startsWith("Section")
 					&& entry instanceof DocumentEntry) {
-				log.debug("extract {}", entry.getName());
-
-				InputStream input = new NDocumentInputStream(
-						(DocumentEntry) entry);
-
-				// FIXME 섹션마다 키가 있는가?
-				Key key = readKey(input);
-				try {
-					input = createDecryptStream(input, key);
-					if (header.compressed)
-						input = new InflaterInputStream(input, new Inflater(
-								true));
-
-					HwpStreamReader sectionStream = new HwpStreamReader(input);
-					extractText(sectionStream, writer);
-				} catch (InvalidKeyException e) {
-					throw new IOException(e);
-				} catch (NoSuchAlgorithmException e) {
-					throw new IOException(e);
-				} catch (NoSuchPaddingException e) {
-					throw new IOException(e);
-				} finally {
-					// 닫을 필요는 없을 것이다
-					try {
-						input.close();
-					} catch (IOException e) {
-						log.error("있을 수 없는 일?", e);
-					}
-				}
+				sections.add((DocumentEntry) entry);
 			} else {
 				log.warn("알수없는 Entry '{}'({})", entry.getName(), entry);
 			}
 		}
+		Collections.sort(sections, new Comparator<DocumentEntry>() {
+			@Override
+			public int compare(DocumentEntry a, DocumentEntry b) {
+				long x = sectionNumber(a.getName());
+				long y = sectionNumber(b.getName());
+				return x < y ? -1 : (x == y ? a.getName().compareTo(
+						b.getName()) : 1);
+			}
+		});
+		return sections;
+	}
+
+	private static long sectionNumber(String name) {
+		try {
+			return Long.parseLong(name.substring("Section".length()));
+		} catch (NumberFormatException e) {
+			return Long.MAX_VALUE;
+		}
+	}
+
+	private static byte[] readSection(DocumentEntry entry) throws IOException {
+		byte[] data = new byte[entry.getSize()];
+		InputStream input = new NDocumentInputStream(entry);
+		try {
+			IOUtils.readFully(input, data);
+		} finally {
+			input.close();
+		}
+		return data;
+	}
+
+	/**
+	 * Section 의 원본 스트림을 복호화, 압축 해제한다
+	 */
+	private static InputStream openSection(InputStream input,
+			FileHeader header, boolean encrypted) throws IOException {
+		if (encrypted) {
+			// FIXME 섹션마다 키가 있는가?
+			Key key = readKey(input);
+			try {
+				input = createDecryptStream(input, key);
+			} catch (InvalidKeyException e) {
+				throw new IOException(e);
+			} catch (NoSuchAlgorithmException e) {
+				throw new IOException(e);
+			} catch (NoSuchPaddingException e) {
+				throw new IOException(e);
+			}
+		}
+		if (header.compressed)
+			input = InflaterPool.inflate(input);
+		return input;
+	}
+
+	private static String getResult(Future<String> result) throws IOException {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * 한 Section 을 해석하는 작업
+	 */
+	private static class SectionTask implements Callable<String> {
+		private final FileHeader header;
+		private final boolean encrypted;
+		private final byte[] data;
+
+		private SectionTask(FileHeader header, boolean encrypted, byte[] data) {
+			this.header = header;
+			this.encrypted = encrypted;
+			this.data = data;
+		}
+
+		@Override
+		public String call() throws IOException {
+			StringWriter writer = new SectionWriter(Math.max(16, data.length));
+			if (!encrypted && !header.compressed) {
+				extractText(new HwpStreamReader(ByteBuffer.wrap(data)), writer);
+				return writer.toString();
+			}
+
+			InputStream input = openSection(new ByteArrayInputStream(data),
+					header, encrypted);
+			try {
+				extractText(new HwpStreamReader(input), writer);
+			} finally {
+				// Inflater 를 pool 에 돌려준다
+				input.close();
+			}
+			return writer.toString();
+		}
+	}
+
+	/**
+	 * 취소된(interrupt) 작업은 다음 문단에서 멈춘다
+	 */
+	private static class SectionWriter extends StringWriter {
+		private SectionWriter(int initialSize) {
+			super(initialSize);
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			if (Thread.currentThread().isInterrupted())
+				throw new CancellationException();
+			super.write(cbuf, off, len);
+		}
 	}
 
 	// https://groups.google.com/forum/#!msg/hwp-foss/d2KL2ypR89Q/lCTkebPcIYYJ
@@ -303,7 +679,7 @@ abstract class HwpTextExtractorV5 {
 	private static Key readKey(InputStream input) throws IOException {
 		byte[] data = new byte[260];
 
-		input.read(data, 0, 4); // TAG,
+		readFully(input, data, 4); // TAG,
 		// HWPTAG_DISTRIBUTE_DOC_DATA 확인
 		// long recordHeader = LittleEndian.getUInt(data);
 		// log.debug("TAG:   {}", recordHeader & 0x3FF);
@@ -312,7 +688,7 @@ abstract class HwpTextExtractorV5 {
 
 		// https://groups.google.com/forum/#!msg/hwp-foss/d2KL2ypR89Q/lCTkebPcIYYJ
 
-		input.read(data, 0, 256);
+		readFully(input, data, 256);
 
 		SRand srand = new SRand(LittleEndian.getInt(data));
 		byte xor = 0;
@@ -333,15 +709,108 @@ abstract class HwpTextExtractorV5 {
 		return secretKey;
 	}
 
+	private static void readFully(InputStream input, byte[] data, int length)
+			throws IOException {
+		if (IOUtils.readFully(input, data, 0, length) != length)
+			throw new EOFException("Invalid distribute document data");
+	}
+
+	/**
+	 * 스레드마다 Cipher 하나를 재사용한다. 한 스레드에서 복호화 스트림은 한번에 하나만 읽는다.
+	 */
+	private static final ThreadLocal<Cipher> AES_ECB = new ThreadLocal<Cipher>();
+
 	public static InputStream createDecryptStream(InputStream input, Key key)
 			throws IOException, NoSuchAlgorithmException,
 			NoSuchPaddingException, InvalidKeyException {
-		Cipher cipher = null;
-
-		cipher = Cipher.getInstance("AES/ECB/NoPadding");
+		Cipher cipher = AES_ECB.get();
+		if (cipher == null) {
+			cipher = Cipher.getInstance("AES/ECB/NoPadding");
+			AES_ECB.set(cipher);
+		}
 		cipher.init(Cipher.DECRYPT_MODE, key);
 
-		return new CipherInputStream(input, cipher);
+		return new DecryptInputStream(input, cipher);
+	}
+
+	/**
+	 * AES/ECB 복호화 스트림. 블록 단위로 정렬된 큰 덩어리를 한번에 복호화한다.
+	 * ECB 는 블록끼리 독립적이므로 덩어리마다 doFinal 을 호출한다.
+	 * 마지막에 블록 크기보다 작게 남은 바이트는 버린다.
+	 */
+	private static class DecryptInputStream extends InputStream {
+		private static final int BLOCK_SIZE = 16;
+		private static final int BUFFER_SIZE = 16 * 1024; // BLOCK_SIZE 의 배수
+
+		private final InputStream input;
+		private final Cipher cipher;
+		private final byte[] encrypted = new byte[BUFFER_SIZE];
+		private final byte[] decrypted = new byte[BUFFER_SIZE];
+		private int encryptedLength = 0;
+		private int position = 0;
+		private int limit = 0;
+		private boolean eof = false;
+
+		private DecryptInputStream(InputStream input, Cipher cipher) {
+			this.input = input;
+			this.cipher = cipher;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (position >= limit && !fill())
+				return -1;
+			return decrypted[position++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			if (position >= limit && !fill())
+				return -1;
+			int n = Math.min(len, limit - position);
+			System.arraycopy(decrypted, position, b, off, n);
+			position += n;
+			return n;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return limit - position;
+		}
+
+		@Override
+		public void close() throws IOException {
+			input.close();
+		}
+
+		/**
+		 * @return false if there is no more block
+		 */
+		private boolean fill() throws IOException {
+			while (!eof && encryptedLength < BUFFER_SIZE) {
+				int read = input.read(encrypted, encryptedLength, BUFFER_SIZE
+						- encryptedLength);
+				if (read == -1)
+					eof = true;
+				else
+					encryptedLength += read;
+			}
+
+			int blocks = encryptedLength - encryptedLength % BLOCK_SIZE;
+			if (blocks == 0)
+				return false;
+			try {
+				limit = cipher.doFinal(encrypted, 0, blocks, decrypted, 0);
+			} catch (GeneralSecurityException e) {
+				throw new IOException(e);
+			}
+			position = 0;
+			encryptedLength -= blocks;
+			System.arraycopy(encrypted, blocks, encrypted, 0, encryptedLength);
+			return limit > 0;
+		}
 	}
 
 	/**
@@ -353,37 +822,35 @@ abstract class HwpTextExtractorV5 {
 	 */
 	private static void extractText(HwpStreamReader sectionStream, Writer writer)
 			throws IOException {
-		StringBuffer buf = new StringBuffer(1024);
+		ParaTextDecoder decoder = new ParaTextDecoder();
 		TagInfo tag = new TagInfo();
 
 		while (true) {
 			if (!readTag(sectionStream, tag))
 				break;
 
-			buf.setLength(0);
 			if (HWPTAG_BEGIN + 50 == tag.id) {
-				writeParaHeader(sectionStream, tag.length, buf);
+				writeParaHeader(sectionStream, tag.length);
 			} else if (HWPTAG_BEGIN + 51 == tag.id) {
 				if (tag.length % 2 != 0)
 					throw new IOException("Invalid block size");
 
-				writeParaText(sectionStream, tag.length, buf);
-
-				if (buf.length() > 0) // 줄바꿈 추가?
-					writer.append(buf.toString()).append('\n');
+				int length = decoder.decode(sectionStream, (int) (tag.length / 2));
+				if (length > 0) { // 줄바꿈 추가?
+					writer.write(decoder.chars, 0, length);
+					writer.write('\n');
+					if (log.isDebugEnabled())
+						log.debug("TAG[{}]({}):{} [{}]", new Object[] { tag.id, tag.level, tag.length,
+								new String(decoder.chars, 0, length) });
+				}
 			} else {
 				sectionStream.ensureSkip(tag.length);
 			}
-
-			if (buf.length() > 0) {
-				log.debug("TAG[{}]({}):{} [{}]", new Object[] { tag.id,
-						tag.level, tag.length, buf });
-			}
 		}
 	}
 
 	private static void writeParaHeader(HwpStreamReader sectionStream,
-			long length, StringBuffer buf) throws IOException {
+			long length) throws IOException {
 		// log.debug("text={}", sectionStream.uint32());
 		// log.debug("control mask={}", sectionStream.uint32());
 		// log.debug("문단모양아이디참조값={}", sectionStream.uint16());
@@ -398,35 +865,6 @@ abstract class HwpTextExtractorV5 {
 		sectionStream.ensureSkip(length);
 	}
 
-	/**
-	 * HWPTAG_PARA_TEXT 의 문자스트림을 문자열로 변환
-	 * 
-	 * @param sectionStream
-	 * @param datasize
-	 * @param buf
-	 * @throws IOException
-	 */
-	private static void writeParaText(HwpStreamReader sectionStream,
-			long datasize, StringBuffer buf) throws IOException {
-		int[] chars = sectionStream.uint16((int) (datasize / 2));
-
-		for (int index = 0; index < chars.length; index++) {
-			int ch = chars[index];
-			if (Arrays.binarySearch(HWP_INLINE_CHARS, ch) >= 0) {
-				if (ch == 9) {
-					buf.append('\t');
-				}
-				index += 7;
-			} else if (Arrays.binarySearch(HWP_EXTENDED_CHARS, ch) >= 0) {
-				index += 7;
-			} else if (Arrays.binarySearch(HWP_CONTROL_CHARS, ch) >= 0) {
-				buf.append(' ');
-			} else {
-				buf.append((char) ch);
-			}
-		}
-	}
-
 	private static boolean readTag(HwpStreamReader sectionStream, TagInfo tag)
 			throws IOException {
 		// p.24
@@ -456,6 +894,64 @@ abstract class HwpTextExtractorV5 {
 		boolean viewtext; // bit 2
 	}
 
+	/**
+	 * HWPTAG_PARA_TEXT 의 문자스트림을 문자열로 변환.
+	 * 0~31 의 제어 문자는 32개짜리 표 하나로 구분하고,
+	 * 재사용하는 char[] 안에서 바로 변환한다.
+	 */
+	static final class ParaTextDecoder {
+		private static final byte CHAR = 0;
+		private static final byte CONTROL = 1; // 1 WCHAR, 공백으로 바꾼다
+		private static final byte INLINE = 2; // 8 WCHAR
+		private static final byte EXTENDED = 3; // 8 WCHAR
+
+		private static final byte[] CHAR_TYPES = new byte[32];
+
+		static {
+			for (int ch : HWP_CONTROL_CHARS)
+				CHAR_TYPES[ch] = CONTROL;
+			for (int ch : HWP_EXTENDED_CHARS)
+				CHAR_TYPES[ch] = EXTENDED;
+			for (int ch : HWP_INLINE_CHARS)
+				CHAR_TYPES[ch] = INLINE;
+		}
+
+		char[] chars = new char[1024];
+
+		/**
+		 * count 개의 WCHAR 를 읽어 chars 에 문자열로 변환
+		 * 
+		 * @return 변환된 문자 수
+		 */
+		int decode(HwpStreamReader sectionStream, int count) throws IOException {
+			if (chars.length < count)
+				chars = new char[Math.max(count, chars.length * 2)];
+			sectionStream.uint16(chars, 0, count);
+
+			int length = 0;
+			for (int index = 0; index < count; index++) {
+				char ch = chars[index];
+				if (ch >= 32) {
+					chars[length++] = ch;
+					continue;
+				}
+				switch (CHAR_TYPES[ch]) {
+				case INLINE:
+					if (ch == 9)
+						chars[length++] = '\t';
+					index += 7;
+					break;
+				case EXTENDED:
+					index += 7;
+					break;
+				default:
+					chars[length++] = ' ';
+				}
+			}
+			return length;
+		}
+	}
+
 	static class TagInfo {
 		long id;
 		long level;
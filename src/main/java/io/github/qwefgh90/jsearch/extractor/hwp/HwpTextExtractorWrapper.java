@@ -4,6 +4,15 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
+import io.github.qwefgh90.jsearch.extractor.DocumentMetadata;
 
 
 /**
@@ -17,13 +26,161 @@ import java.io.StringWriter;
 public class HwpTextExtractorWrapper {
 	StringWriter writer = new StringWriter();
 	StringBuffer buffer = writer.getBuffer();
-	
+	private final ExecutorService executor;
+
+	public HwpTextExtractorWrapper() {
+		this(null);
+	}
+
+	/**
+	 * Sections of HWP 5.0 document are inflated and parsed concurrently on executor.
+	 * Text is written in section order. executor isn't shut down by this class.
+	 * 
+	 * @param executor a pool for sections. if null, sections are parsed one by one
+	 */
+	public HwpTextExtractorWrapper(ExecutorService executor) {
+		this.executor = executor;
+	}
+
 	public final boolean extract(File source) throws FileNotFoundException, IOException {
 		buffer.setLength(0);
-		return HwpTextExtractor.extract(source, writer);
+		return HwpTextExtractor.extract(source, writer, executor);
+	}
+
+	/**
+	 * Extract text to writer directly. getText() doesn't return this text.
+	 * 
+	 * @param source hwp file
+	 * @param writer a destination of text
+	 * @return whether to be success
+	 * @throws FileNotFoundException if source doesn't exist
+	 * @throws IOException a problem of file or writer
+	 */
+	public final boolean extract(File source, Writer writer) throws FileNotFoundException, IOException {
+		return HwpTextExtractor.extract(source, writer, executor);
+	}
+
+	/**
+	 * Extract text of document in memory (e.g. an entry of archive). A temporary file isn't created.
+	 * 
+	 * @param data contents of hwp file
+	 * @param writer a destination of text
+	 * @return false if data isn't HWP document
+	 * @throws IOException a problem of document or writer
+	 */
+	public final boolean extract(byte[] data, Writer writer) throws IOException {
+		return HwpTextExtractor.extract(data, writer, executor);
+	}
+
+	/**
+	 * List sections of HWP 5.0 document without decoding them.
+	 * 
+	 * @param source hwp file
+	 * @return sections in order. empty if source isn't HWP 5.0 document
+	 * @throws FileNotFoundException if source doesn't exist
+	 * @throws IOException a problem of file
+	 */
+	public final List<HwpSection> getSections(File source) throws FileNotFoundException, IOException {
+		if (!source.exists())
+			throw new FileNotFoundException();
+		List<HwpSection> sections = HwpTextExtractorV5.listSections(source);
+		return sections == null ? Collections.<HwpSection> emptyList() : sections;
+	}
+
+	/**
+	 * Extract text of selected sections of HWP 5.0 document. Other sections aren't decoded.
+	 * 
+	 * @param source hwp file
+	 * @param writer a destination of text
+	 * @param sections indexes of sections. refer to {@link HwpSection#getIndex()}
+	 * @return false if source isn't HWP 5.0 document
+	 * @throws FileNotFoundException if source doesn't exist
+	 * @throws IOException a problem of file or writer
+	 */
+	public final boolean extractSections(File source, Writer writer, int... sections)
+			throws FileNotFoundException, IOException {
+		if (!source.exists())
+			throw new FileNotFoundException();
+		Set<Integer> selected = new HashSet<Integer>();
+		for (int section : sections)
+			selected.add(section);
+		return HwpTextExtractorV5.extractSections(source, writer, selected);
+	}
+
+	/**
+	 * Extract first maxLength characters of text. Sections after it aren't decoded.
+	 * 
+	 * @param source hwp file
+	 * @param maxLength a maximum count of characters
+	 * @param writer a destination of text
+	 * @return whether to be success
+	 * @throws FileNotFoundException if source doesn't exist
+	 * @throws IOException a problem of file or writer
+	 */
+	public final boolean extractPrefix(File source, int maxLength, Writer writer)
+			throws FileNotFoundException, IOException {
+		LimitedWriter limited = new LimitedWriter(writer, maxLength);
+		try {
+			return HwpTextExtractor.extract(source, limited, null);
+		} catch (ExtractionStoppedException e) {
+			if (!limited.isFull())
+				throw e;
+			return true;
+		}
+	}
+
+	/**
+	 * Read FileHeader and summary information only. Body text isn't decoded.
+	 * 
+	 * @param source hwp file
+	 * @return metadata. null if source isn't HWP document
+	 * @throws FileNotFoundException if source doesn't exist
+	 * @throws IOException a problem of file
+	 */
+	public final DocumentMetadata getMetadata(File source) throws FileNotFoundException, IOException {
+		return HwpTextExtractor.extractMetadata(source);
 	}
 
 	public final String getText(){
 		return writer.toString();
 	}
+
+	/**
+	 * A writer which stops extraction after limit characters
+	 */
+	private static class LimitedWriter extends Writer {
+		private final Writer writer;
+		private int remaining;
+		private boolean full = false;
+
+		private LimitedWriter(Writer writer, int limit) {
+			this.writer = writer;
+			this.remaining = limit;
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			int n = Math.min(len, remaining);
+			if (n > 0)
+				writer.write(cbuf, off, n);
+			remaining -= n;
+			if (n < len || remaining == 0) {
+				full = true;
+				throw new ExtractionStoppedException("The text is longer than the limit.");
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			writer.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+		}
+
+		private boolean isFull() {
+			return full;
+		}
+	}
 }
@@ -0,0 +1,354 @@
+package io.github.qwefgh90.jsearch.extractor.hwp;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.util.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.qwefgh90.jsearch.extractor.DocumentMetadata;
+
+/**
+ * HWPX (OWPML) 문서에서 텍스트 추출
+ * <br><br>
+ * HWPX 는 XML 파일들의 ZIP 이다. 본문은 Contents/section0.xml, section1.xml ... 에 있다.
+ * <br><br>
+ * <strong>process</strong>
+ * <ol>
+ * <li>Contents/section*.xml 을 번호 순서로 찾는다</li>
+ * <li>StAX 로 읽으면서 &lt;hp:t&gt; 의 문자만 writer 에 쓴다</li>
+ * <li>&lt;hp:p&gt; 가 끝나면 줄바꿈을 쓴다</li>
+ * </ol>
+ * writer 가 예외(ExtractionStoppedException 등)를 던지면 바로 멈춘다.
+ * @author qwefgh90
+ *
+ */
+public class HwpxTextExtractor {
+	protected static Logger log = LoggerFactory.getLogger(HwpxTextExtractor.class);
+
+	private static final Pattern SECTION = Pattern.compile("Contents/section(\\d+)\\.xml");
+	// http://www.hancom.co.kr/hwpml/2011/paragraph 등
+	private static final String CONTENT = "Contents/content.hpf";
+	private static final String HWPML_NAMESPACE = "http://www.hancom.co.kr/hwpml/";
+
+	private static final XMLInputFactory factory = XMLInputFactory.newInstance();
+
+	static {
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+	}
+
+	private HwpxTextExtractor() {
+	}
+
+	/**
+	 * HWPX 파일에서 텍스트 추출
+	 *
+	 * @param source
+	 * @return 추출한 텍스트
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 *             HWPX 문서가 아니거나 읽는 중 오류
+	 */
+	public static String extract(File source) throws FileNotFoundException, IOException {
+		StringWriter writer = new StringWriter();
+		if (!extract(source, writer))
+			throw new IOException("Invalid HWPX document");
+		return writer.toString();
+	}
+
+	/**
+	 * HWPX 파일에서 텍스트 추출
+	 *
+	 * @param source
+	 * @param writer
+	 * @return HWPX 문서가 아니면(section 이 없으면) false
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+	public static boolean extract(File source, Writer writer) throws FileNotFoundException, IOException {
+		if (source == null || writer == null)
+			throw new IllegalArgumentException();
+		if (!source.exists())
+			throw new FileNotFoundException();
+
+		ZipFile zip = new ZipFile(source);
+		try {
+			List<ZipEntry> sections = getSections(zip);
+			if (sections.isEmpty())
+				return false;
+
+			for (ZipEntry section : sections) {
+				log.debug("extract {}", section.getName());
+				InputStream input = zip.getInputStream(section);
+				try {
+					extractSection(input, writer);
+				} finally {
+					input.close();
+				}
+			}
+			return true;
+		} finally {
+			zip.close();
+		}
+	}
+
+	/**
+	 * 메모리에 있는 HWPX 문서에서 텍스트 추출 (압축 파일 안의 문서 등)
+	 *
+	 * @param data
+	 * @param writer
+	 * @return HWPX 문서가 아니면(section 이 없으면) false
+	 * @throws IOException
+	 */
+	public static boolean extract(byte[] data, Writer writer) throws IOException {
+		if (data == null || writer == null)
+			throw new IllegalArgumentException();
+
+		// ZipInputStream 은 순서대로 읽으므로 section 을 모은 뒤 번호 순서로 해석한다
+		Map<Long, byte[]> sections = new TreeMap<Long, byte[]>();
+		ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data));
+		try {
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null) {
+				if (SECTION.matcher(entry.getName()).matches())
+					sections.put(sectionNumber(entry.getName()), IOUtils.toByteArray(zip));
+			}
+		} finally {
+			zip.close();
+		}
+		if (sections.isEmpty())
+			return false;
+
+		for (byte[] section : sections.values())
+			extractSection(new ByteArrayInputStream(section), writer);
+		return true;
+	}
+
+	/**
+	 * Contents/content.hpf 의 &lt;opf:metadata&gt; 만 읽는다. 본문(section)은 읽지 않는다.
+	 *
+	 * @param source
+	 * @return HWPX 문서가 아니면(section 이 없으면) null
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+	public static DocumentMetadata extractMetadata(File source) throws FileNotFoundException, IOException {
+		if (source == null)
+			throw new IllegalArgumentException();
+		if (!source.exists())
+			throw new FileNotFoundException();
+
+		ZipFile zip = new ZipFile(source);
+		try {
+			if (getSections(zip).isEmpty())
+				return null;
+
+			DocumentMetadata metadata = new DocumentMetadata();
+			ZipEntry content = zip.getEntry(CONTENT);
+			if (content == null)
+				return metadata;
+			InputStream input = zip.getInputStream(content);
+			try {
+				readMetadata(input, metadata);
+			} finally {
+				input.close();
+			}
+			return metadata;
+		} finally {
+			zip.close();
+		}
+	}
+
+	/**
+	 * &lt;opf:title&gt; 과 &lt;opf:meta name="..."&gt;
+	 */
+	private static void readMetadata(InputStream input, DocumentMetadata metadata) throws IOException {
+		XMLStreamReader reader;
+		try {
+			reader = factory.createXMLStreamReader(input);
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+
+		try {
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.END_ELEMENT && "metadata".equals(reader.getLocalName()))
+					return;
+				if (event != XMLStreamConstants.START_ELEMENT)
+					continue;
+				if ("title".equals(reader.getLocalName())) {
+					metadata.setTitle(reader.getElementText());
+				} else if ("meta".equals(reader.getLocalName())) {
+					String name = reader.getAttributeValue(null, "name");
+					String value = reader.getElementText();
+					if ("creator".equals(name))
+						metadata.setAuthor(value);
+					else if ("subject".equals(name))
+						metadata.setSubject(value);
+					else if ("description".equals(name))
+						metadata.setComments(value);
+					else if ("keyword".equals(name))
+						metadata.setKeywords(value);
+					else if ("lastsaveby".equals(name))
+						metadata.setLastAuthor(value);
+					else if ("CreatedDate".equals(name))
+						metadata.setCreated(parseDate(value));
+					else if ("ModifiedDate".equals(name))
+						metadata.setModified(parseDate(value));
+					else if (name != null)
+						metadata.setProperty("hwpx:" + name, value);
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			try {
+				reader.close();
+			} catch (XMLStreamException e) {
+				log.warn("exception while reader.close", e);
+			}
+		}
+	}
+
+	/**
+	 * 2016-11-20T01:02:03Z 형식. 형식이 다르면 null
+	 */
+	private static Date parseDate(String value) {
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		try {
+			return format.parse(value.trim());
+		} catch (ParseException e) {
+			log.debug("날짜 형식이 아님 {}", value);
+			return null;
+		}
+	}
+
+	/**
+	 * Contents/section0.xml, section1.xml, ... section10.xml 순서
+	 */
+	private static List<ZipEntry> getSections(ZipFile zip) {
+		List<ZipEntry> sections = new ArrayList<ZipEntry>();
+		Enumeration<? extends ZipEntry> entries = zip.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			if (SECTION.matcher(entry.getName()).matches())
+				sections.add(entry);
+		}
+		Collections.sort(sections, new Comparator<ZipEntry>() {
+			@Override
+			public int compare(ZipEntry a, ZipEntry b) {
+				long x = sectionNumber(a.getName());
+				long y = sectionNumber(b.getName());
+				return x < y ? -1 : (x == y ? 0 : 1);
+			}
+		});
+		return sections;
+	}
+
+	private static long sectionNumber(String name) {
+		Matcher matcher = SECTION.matcher(name);
+		if (!matcher.matches())
+			return Long.MAX_VALUE;
+		try {
+			return Long.parseLong(matcher.group(1));
+		} catch (NumberFormatException e) {
+			return Long.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * section XML 에서 문단 텍스트만 추출
+	 */
+	private static void extractSection(InputStream input, Writer writer) throws IOException {
+		XMLStreamReader reader;
+		try {
+			reader = factory.createXMLStreamReader(input);
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+
+		try {
+			int depth = 0; // <hp:t> 안인가?
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					if (!isHwpml(reader))
+						break;
+					String name = reader.getLocalName();
+					if ("t".equals(name)) {
+						depth++;
+					} else if (depth > 0) {
+						// <hp:t> 안의 제어 문자
+						if ("tab".equals(name))
+							writer.write('\t');
+						else if ("lineBreak".equals(name))
+							writer.write('\n');
+						else if ("fwSpace".equals(name) || "nbSpace".equals(name))
+							writer.write(' ');
+					}
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					if (!isHwpml(reader))
+						break;
+					if ("t".equals(reader.getLocalName()))
+						depth--;
+					else if ("p".equals(reader.getLocalName()))
+						writer.write('\n');
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					if (depth > 0)
+						writer.write(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+					break;
+				default:
+					break;
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			try {
+				reader.close();
+			} catch (XMLStreamException e) {
+				log.warn("exception while reader.close", e);
+			}
+		}
+	}
+
+	private static boolean isHwpml(XMLStreamReader reader) {
+		String namespace = reader.getNamespaceURI();
+		return namespace != null && namespace.startsWith(HWPML_NAMESPACE);
+	}
+}
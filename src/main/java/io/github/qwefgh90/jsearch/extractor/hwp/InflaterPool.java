@@ -0,0 +1,144 @@
+package io.github.qwefgh90.jsearch.extractor.hwp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A pool of raw (nowrap) {@link Inflater} for HWP streams.
+ * <br><br>
+ * Inflater holds zlib native memory until end() is called.
+ * An inflater is reset and kept for reuse when a stream is closed,
+ * and end() is called if the pool is full or on {@link #clear()}.
+ * <br><br>
+ * <strong>process</strong>
+ * <ol>
+ * <li>open a stream with {@link #inflate(InputStream)}</li>
+ * <li>read and close it</li>
+ * </ol>
+ * @author qwefgh90
+ *
+ */
+public final class InflaterPool {
+	private static final int BUFFER_SIZE = 8 * 1024;
+	private static final int MAX_IDLE = Runtime.getRuntime().availableProcessors() * 2;
+
+	private static final ConcurrentLinkedQueue<Inflater> idle = new ConcurrentLinkedQueue<Inflater>();
+	private static final AtomicInteger idleCount = new AtomicInteger();
+	private static final AtomicInteger activeCount = new AtomicInteger();
+	private static final AtomicLong createdCount = new AtomicLong();
+	private static final AtomicLong endedCount = new AtomicLong();
+	private static final AtomicLong inflatedBytes = new AtomicLong();
+
+	private InflaterPool() {
+	}
+
+	/**
+	 * Closing a returned stream gives the inflater back to the pool.
+	 * 
+	 * @param input deflated data without zlib header
+	 * @return a stream of inflated data
+	 */
+	static InputStream inflate(InputStream input) {
+		return new PooledInflaterInputStream(input, acquire());
+	}
+
+	static Inflater acquire() {
+		Inflater inflater = idle.poll();
+		if (inflater != null) {
+			idleCount.decrementAndGet();
+		} else {
+			inflater = new Inflater(true);
+			createdCount.incrementAndGet();
+		}
+		activeCount.incrementAndGet();
+		return inflater;
+	}
+
+	static void release(Inflater inflater) {
+		activeCount.decrementAndGet();
+		inflatedBytes.addAndGet(inflater.getBytesWritten());
+		if (idleCount.incrementAndGet() <= MAX_IDLE) {
+			inflater.reset();
+			idle.offer(inflater);
+		} else {
+			idleCount.decrementAndGet();
+			end(inflater);
+		}
+	}
+
+	private static void end(Inflater inflater) {
+		inflater.end();
+		endedCount.incrementAndGet();
+	}
+
+	/**
+	 * Release native memory of idle inflaters.
+	 */
+	public static void clear() {
+		Inflater inflater;
+		while ((inflater = idle.poll()) != null) {
+			idleCount.decrementAndGet();
+			end(inflater);
+		}
+	}
+
+	/**
+	 * @return a count of inflaters which hold native memory (in use and idle)
+	 */
+	public static long getNativeCount() {
+		return createdCount.get() - endedCount.get();
+	}
+
+	/**
+	 * @return a count of inflaters which are in use
+	 */
+	public static int getActiveCount() {
+		return activeCount.get();
+	}
+
+	/**
+	 * @return a count of idle inflaters in the pool
+	 */
+	public static int getIdleCount() {
+		return idleCount.get();
+	}
+
+	/**
+	 * @return a count of inflaters which have been created
+	 */
+	public static long getCreatedCount() {
+		return createdCount.get();
+	}
+
+	/**
+	 * @return a count of bytes which have been inflated by released inflaters
+	 */
+	public static long getInflatedBytes() {
+		return inflatedBytes.get();
+	}
+
+	private static class PooledInflaterInputStream extends InflaterInputStream {
+		private boolean closed = false;
+
+		private PooledInflaterInputStream(InputStream input, Inflater inflater) {
+			super(input, inflater, BUFFER_SIZE);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed)
+				return;
+			closed = true;
+			try {
+				super.close();
+			} finally {
+				release(inf);
+			}
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package com.qwefgh90.io.jsearch.test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -7,14 +9,20 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
 import java.util.List;
+import java.util.TimeZone;
+import java.util.regex.Pattern;
 
+import org.apache.tika.mime.MediaType;
 import org.hamcrest.core.StringContains;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.github.qwefgh90.jsearch.JSearch;
+import io.github.qwefgh90.jsearch.extractor.DocumentMetadata;
+import io.github.qwefgh90.jsearch.extractor.TikaTextExtractor;
 
 public class JSearchTest {
 
@@ -112,5 +120,64 @@ public class JSearchTest {
 				, true);
 		assertTrue("file count is " + list.size(), list.size() > 0);
 	}
-}
 
+	@Test
+	public void findPatternWithDirectoryRecursiveTest() throws IOException
+	{
+		List<File> list = JSearch.getFileListContainsPatternFromDirectory(
+				getClass().getResource("/").getFile()
+				, Pattern.compile("org\\.apache\\.catalina\\.servlets\\.\\w+Servlet") // /conf/web.xml
+				, true);
+		assertTrue("file count is " + list.size(), list.size() > 0);
+		assertTrue(JSearch.isContainsPatternFromFile(new File(getClass().getResource("/hwp/HTTP.hwp").getFile()), Pattern.compile("WAP\\S")));
+	}
+
+	@Test
+	public void extractMetadataTest() throws Exception
+	{
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+		//HWP 5.0
+		DocumentMetadata metadata = JSearch.extractMetadataFromFile(new File(getClass().getResource("/v5/test-distribute.hwp").getFile()));
+		assertEquals("application/x-hwp-v5", metadata.getContentType());
+		assertEquals("test", metadata.getTitle());
+		assertEquals("Administrator", metadata.getAuthor());
+		assertEquals(format.parse("2015-09-11 04:31:58").getTime() / 1000, metadata.getCreated().getTime() / 1000);
+		assertEquals(Integer.valueOf(1), metadata.getPageCount());
+		assertEquals("true", metadata.getProperties().get("hwp:distribution"));
+
+		//HWP 3.0
+		metadata = JSearch.extractMetadataFromFile(new File(getClass().getResource("/v3/han_special_char_3.0.hwp").getFile()));
+		assertEquals("한글 특수문자표", metadata.getTitle());
+		assertEquals("Hugh", metadata.getAuthor());
+
+		//DOC
+		metadata = JSearch.extractMetadataFromFile(new File(getClass().getResource("/doc/1234.doc").getFile()));
+		assertEquals("application/msword", metadata.getContentType());
+		assertEquals("워드 문서양식", metadata.getTitle());
+		assertEquals("moonyoung", metadata.getLastAuthor());
+
+		//PDF
+		metadata = JSearch.extractMetadataFromFile(new File(getClass().getResource("/pdf/boot.pdf").getFile()));
+		assertEquals("skyun", metadata.getAuthor());
+		assertEquals(Integer.valueOf(11), metadata.getPageCount());
+
+		//TXT
+		metadata = JSearch.extractMetadataFromFile(new File(getClass().getResource("/text/1234_utf_8.txt").getFile()));
+		assertEquals("text/plain", metadata.getContentType());
+		assertNull(metadata.getTitle());
+	}
+
+	@Test
+	public void extractWithKnownTypeTest() throws Exception
+	{
+		String[] paths = { "/doc/1234.doc", "/doc/template.docx", "/ppt/1234.ppt", "/xlsx/1234.xlsx", "/pdf/boot.pdf", "/xml/web.xml" };
+		for (String path : paths) {
+			File file = new File(getClass().getResource(path).getFile());
+			MediaType type = JSearch.getContentType(file, file.getName());
+			// same text as auto detection
+			assertEquals(path, TikaTextExtractor.extract(file), TikaTextExtractor.extract(file, type));
+		}
+	}
+}
@@ -1,21 +1,32 @@
 package com.qwefgh90.io.jsearch.test;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
 
 import org.hamcrest.core.StringContains;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.github.qwefgh90.jsearch.extractor.PlainTextExtractor;
+import io.github.qwefgh90.jsearch.extractor.TextEncodingDetector;
 
 public class PlainTextTest {
 	
 	public static Logger LOG = LoggerFactory.getLogger(PlainTextTest.class);
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Test
 	public void extract() throws IOException
 	{
@@ -31,4 +42,109 @@ public class PlainTextTest {
 		assertThat(textEuckr, new StringContains("txt"));
 	}
 	
+	@Test
+	public void extractStreaming() throws IOException
+	{
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 20000; i++)
+			text.append(i).append(" 번째 줄입니다.\n");
+		File utf8 = write("large_utf8.txt", new byte[0], text.toString().getBytes("UTF-8"));
+		File utf16 = write("large_utf16.txt", new byte[] { (byte) 0xFE, (byte) 0xFF }, text.toString().getBytes("UTF-16BE"));
+
+		StringWriter writer = new StringWriter();
+		PlainTextExtractor.extract(utf8, writer);
+		assertTrue(writer.toString().equals(text.toString()));
+		writer = new StringWriter();
+		PlainTextExtractor.extract(utf16, writer);
+		assertTrue(writer.toString().equals(text.toString()));
+	}
+
+	@Test
+	public void containsKeyword() throws IOException
+	{
+		File utf8 = new File(getClass().getResource("/text/1234_utf_8.txt").getFile());
+		File unicode = new File(getClass().getResource("/text/1234_unicode.txt").getFile());
+		File euckr = new File(getClass().getResource("/text/1234_euc_kr.txt").getFile());
+		assertTrue(PlainTextExtractor.isContainsKeyword(utf8, "텍스트"));
+		assertTrue(PlainTextExtractor.isContainsKeyword(utf8, "txt"));
+		assertTrue(PlainTextExtractor.isContainsKeyword(unicode, "텍스트"));
+		assertTrue(PlainTextExtractor.isContainsKeyword(unicode, "txt"));
+		assertTrue(PlainTextExtractor.isContainsKeyword(euckr, "텍스트"));
+		assertTrue(PlainTextExtractor.isContainsKeyword(euckr, "txt"));
+		assertFalse(PlainTextExtractor.isContainsKeyword(utf8, "없는 단어"));
+		assertFalse(PlainTextExtractor.isContainsKeyword(euckr, "없는 단어"));
+	}
+
+	@Test
+	public void containsKeywordAlignment() throws IOException
+	{
+		// 00 42 is in "AB" at an odd offset
+		File utf16 = write("utf16.txt", new byte[] { (byte) 0xFF, (byte) 0xFE }, "AB".getBytes("UTF-16LE"));
+		assertTrue(PlainTextExtractor.isContainsKeyword(utf16, "B"));
+		assertFalse(PlainTextExtractor.isContainsKeyword(utf16, "\u4200"));
+
+		// A1 B3 is in "가나" (B0 A1 B3 AA) at a trail byte
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 50; i++)
+			text.append("한국어 문서에서 단어를 찾습니다. ");
+		text.append("가나");
+		String misaligned = new String(new byte[] { (byte) 0xA1, (byte) 0xB3 }, "EUC-KR");
+		File euckr = write("euckr.txt", new byte[0], text.toString().getBytes("EUC-KR"));
+		assertTrue(PlainTextExtractor.isContainsKeyword(euckr, "가나"));
+		assertFalse(PlainTextExtractor.extract(euckr).contains(misaligned));
+		assertFalse(PlainTextExtractor.isContainsKeyword(euckr, misaligned));
+	}
+
+	@Test
+	public void detectEncoding() throws IOException
+	{
+		StringBuilder ascii = new StringBuilder();
+		for (int i = 0; i < 20000; i++)
+			ascii.append("log line\n");
+		StringBuilder korean = new StringBuilder();
+		for (int i = 0; i < 50; i++)
+			korean.append("한국어 로그에서 인코딩을 찾습니다.\n");
+		File euckr = write("mixed_euckr.txt", ascii.toString().getBytes("US-ASCII"), korean.toString().getBytes("EUC-KR"));
+		File utf8 = write("mixed_utf8.txt", ascii.toString().getBytes("US-ASCII"), korean.toString().getBytes("UTF-8"));
+		File onlyAscii = write("ascii.txt", new byte[0], ascii.toString().getBytes("US-ASCII"));
+
+		TextEncodingDetector detector = new TextEncodingDetector(4096, true);
+		assertTrue(detector.detect(euckr).equals(Charset.forName("EUC-KR")));
+		assertTrue(detector.detect(utf8).equals(Charset.forName("UTF-8")));
+		assertTrue(detector.detect(onlyAscii).equals(Charset.forName("UTF-8")));
+		assertTrue(PlainTextExtractor.isContainsKeyword(euckr, "인코딩을"));
+		assertThat(PlainTextExtractor.extract(utf8), new StringContains("인코딩을"));
+	}
+
+	@Test
+	public void detectBoundedAsciiPrefix() throws IOException
+	{
+		StringBuilder ascii = new StringBuilder();
+		for (int i = 0; i < 250000; i++)
+			ascii.append("log line\n");
+		StringBuilder korean = new StringBuilder();
+		for (int i = 0; i < 50; i++)
+			korean.append("한국어 로그에서 인코딩을 찾습니다.\n");
+		File euckr = write("long_ascii_euckr.txt", ascii.toString().getBytes("US-ASCII"), korean.toString().getBytes("EUC-KR"));
+
+		File utf8 = write("long_ascii_utf8.txt", ascii.toString().getBytes("US-ASCII"), korean.toString().getBytes("UTF-8"));
+		File onlyAscii = write("long_ascii.txt", new byte[0], ascii.toString().getBytes("US-ASCII"));
+
+		// 2MB of ASCII is longer than 16 * 64KB, so Korean at the tail is found by a probe window
+		assertTrue(new TextEncodingDetector(4096, true).detect(euckr).equals(Charset.forName("EUC-KR")));
+		assertTrue(new TextEncodingDetector(256 * 1024, true).detect(euckr).equals(Charset.forName("EUC-KR")));
+		assertTrue(new TextEncodingDetector(4096, true).detect(utf8).equals(Charset.forName("UTF-8")));
+		assertTrue(new TextEncodingDetector(4096, true).detect(onlyAscii).equals(Charset.forName("UTF-8")));
+		assertTrue(PlainTextExtractor.isContainsKeyword(euckr, "인코딩을"));
+	}
+
+	private File write(String name, byte[] bom, byte[] body) throws IOException
+	{
+		File file = folder.newFile(name);
+		try (FileOutputStream fos = new FileOutputStream(file)) {
+			fos.write(bom);
+			fos.write(body);
+		}
+		return file;
+	}
 }
@@ -1,12 +1,24 @@
 package com.qwefgh90.io.jsearch.test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
+import io.github.qwefgh90.jsearch.algorithm.ApproximateQS;
+import io.github.qwefgh90.jsearch.algorithm.ApproximateQSWriter;
 import io.github.qwefgh90.jsearch.algorithm.QS;
+import io.github.qwefgh90.jsearch.algorithm.QSWriter;
 
 public class QSTest {
 
@@ -31,4 +43,165 @@ public class QSTest {
 		assertTrue(qs.findAll(target).size() == 2);
 		assertTrue(qs.findAll(target2).size() == 0);
 	}
+
+	@Test
+	public void qsWriterTest() throws IOException
+	{
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 10000; i++)
+			sb.append("hello wrx ");
+		String target = sb.toString();
+
+		// keywords across chunks
+		QSWriter writer = new QSWriter(QS.compile(" wrx"), false);
+		for (int i = 0; i < target.length(); i += 7)
+			writer.write(target, i, Math.min(7, target.length() - i));
+		writer.close();
+		assertTrue(writer.getCount() == 10000);
+
+		writer = new QSWriter(QS.compile("wro"), false);
+		writer.write(target);
+		writer.close();
+		assertFalse(writer.isFound());
+	}
+
+	@Test(expected = ExtractionStoppedException.class)
+	public void qsWriterStopTest() throws IOException
+	{
+		QSWriter writer = new QSWriter(QS.compile("wr"), true);
+		writer.write("hello wro");
+		writer.close();
+	}
+
+	@Test
+	public void qsFoldingTest() throws IOException
+	{
+		QS qs = QS.compile("HeLLo", QS.CASE_INSENSITIVE);
+		assertTrue(qs.isExist("say hello"));
+		assertTrue(qs.findAll("HELLO hello").size() == 2);
+		assertFalse(QS.compile("HeLLo").isExist("say hello"));
+
+		// full-width forms
+		qs = QS.compile("java", QS.CASE_INSENSITIVE | QS.NORMALIZE);
+		assertTrue(qs.isExist("ＪＡＶＡ 프로그래밍"));
+
+		// NFC pattern, NFD text and NFD pattern, NFC text
+		String nfc = "한글 문서를 검색합니다";
+		String nfd = Normalizer.normalize(nfc, Normalizer.Form.NFD);
+		qs = QS.compile("문서", QS.NORMALIZE);
+		List<Integer> found = qs.findAll(nfd);
+		assertTrue(found.size() == 1);
+		assertTrue(nfd.startsWith(Normalizer.normalize("문서", Normalizer.Form.NFD), found.get(0)));
+		qs = QS.compile(Normalizer.normalize("문서", Normalizer.Form.NFD), QS.NORMALIZE);
+		assertTrue(qs.findAll(nfc).size() == 1 && qs.findAll(nfc).get(0) == 3);
+
+		// a part of syllable is not a match
+		assertFalse(QS.compile("가", QS.NORMALIZE).isExist("각"));
+		assertFalse(QS.compile("가", QS.NORMALIZE).isExist("\u1100\u1161\u11A8"));
+		assertFalse(QS.compile("\u1161\u11A8", QS.NORMALIZE).isExist("\u1100\u1161\u11A8"));
+		assertFalse(QS.compile("\u1161\u11A8", QS.NORMALIZE).isExist("각"));
+		assertTrue(QS.compile("가", QS.NORMALIZE).isExist("\u1100\u1161"));
+		assertTrue(QS.compile("가", QS.NORMALIZE).isExist("가각"));
+		assertTrue(QS.compile("가", QS.NORMALIZE).isExist("\u1100\u1161\u1100\u1161\u11A8"));
+		char[] syllables = "각가".toCharArray();
+		assertTrue(QS.compile("가", QS.NORMALIZE).indexOf(syllables, 0, syllables.length) == 1);
+		char[] jamo = "\u1100\u1161\u11A8\u1100\u1161".toCharArray();
+		assertTrue(QS.compile("가", QS.NORMALIZE).indexOf(jamo, 0, jamo.length) == 3);
+		// source[from - 1] is a context of a syllable
+		assertTrue(QS.compile("\u1161", QS.NORMALIZE).indexOf(jamo, 1, jamo.length) == -1);
+
+		// compatibility Jamo (and their half-width forms) are conjoining Jamo
+		assertTrue(QS.compile("ㄱ", QS.NORMALIZE).isExist("\u1100"));
+		assertTrue(QS.compile("ㄱ", QS.NORMALIZE).isExist("\uFFA1"));
+		assertTrue(QS.compile("\u1100", QS.NORMALIZE).isExist("초성 ㄱ"));
+		assertFalse(QS.compile("ㄱ", QS.NORMALIZE).isExist("가"));
+
+		// a syllable across writes of QSWriter
+		for (String text : new String[] { "가", "\u1100\u1161" }) {
+			StringBuilder repeated = new StringBuilder();
+			for (int i = 0; i < 20000; i++)
+				repeated.append(i % 2 == 0 ? text + "\u11A8" : "x");
+			QSWriter partial = new QSWriter(QS.compile("가", QS.NORMALIZE), false);
+			partial.write(repeated.toString());
+			partial.close();
+			assertTrue(partial.getCount() == 0);
+			partial = new QSWriter(QS.compile("가", QS.NORMALIZE), false);
+			partial.write(repeated.toString().replace("\u11A8", ""));
+			partial.close();
+			assertTrue(partial.getCount() == 10000);
+		}
+
+		// streaming
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5000; i++)
+			sb.append(i % 2 == 0 ? nfc : nfd).append(' ');
+		QSWriter writer = new QSWriter(QS.compile("문서", QS.NORMALIZE), false);
+		String target = sb.toString();
+		for (int i = 0; i < target.length(); i += 5)
+			writer.write(target, i, Math.min(5, target.length() - i));
+		writer.close();
+		assertTrue(writer.getCount() == 5000);
+		assertTrue(QS.compile("문서", QS.NORMALIZE).findAll(target).size() == 5000);
+	}
+
+	@Test
+	public void approximateQSTest() throws IOException
+	{
+		ApproximateQS qs = ApproximateQS.compile("keyword", 1);
+		assertTrue(qs.isExist("find a keyvord here"));
+		assertTrue(qs.isExist("find a keword here"));
+		assertTrue(qs.isExist("find a keywords here"));
+		assertFalse(qs.isExist("find a kevvord here"));
+		assertTrue(ApproximateQS.compile("keyword", 0).findAll("keyword keyword").size() == 2);
+
+		// compare with dynamic programming
+		Random random = new Random(7);
+		for (int t = 0; t < 300; t++) {
+			String pattern = randomText(random, 1 + random.nextInt(t % 2 == 0 ? 8 : 80), 3);
+			String text = randomText(random, random.nextInt(300), 3);
+			int k = random.nextInt(4);
+			List<Integer> expected = new ArrayList<Integer>();
+			int[] column = new int[pattern.length() + 1];
+			for (int i = 0; i <= pattern.length(); i++)
+				column[i] = i;
+			if (column[pattern.length()] <= k)
+				expected.add(0);
+			for (int j = 0; j < text.length(); j++) {
+				int diagonal = column[0];
+				column[0] = 0;
+				for (int i = 1; i <= pattern.length(); i++) {
+					int up = column[i];
+					column[i] = Math.min(diagonal + (pattern.charAt(i - 1) == text.charAt(j) ? 0 : 1),
+							Math.min(up, column[i - 1]) + 1);
+					diagonal = up;
+				}
+				if (column[pattern.length()] <= k)
+					expected.add(j + 1);
+			}
+			assertEquals(expected, ApproximateQS.compile(pattern, k).findAll(text));
+
+			// streaming
+			ApproximateQSWriter writer = new ApproximateQSWriter(ApproximateQS.compile(pattern, k), false);
+			for (int i = 0; i < text.length(); i += 7)
+				writer.write(text, i, Math.min(7, text.length() - i));
+			writer.close();
+			assertTrue(writer.getCount() == expected.size());
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 30000; i++)
+			sb.append(i % 1000 == 0 ? "serch " : "text ");
+		ApproximateQSWriter writer = new ApproximateQSWriter(ApproximateQS.compile("search", 1), false);
+		writer.write(sb.toString());
+		writer.close();
+		assertTrue(writer.getCount() == ApproximateQS.compile("search", 1).findAll(sb.toString()).size());
+		assertTrue(writer.getCount() >= 30);
+	}
+
+	private static String randomText(Random random, int length, int alphabet) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++)
+			sb.append((char) ('a' + random.nextInt(alphabet)));
+		return sb.toString();
+	}
 }
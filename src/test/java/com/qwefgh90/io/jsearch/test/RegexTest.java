@@ -0,0 +1,85 @@
+package com.qwefgh90.io.jsearch.test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
+import io.github.qwefgh90.jsearch.algorithm.RegexWriter;
+
+public class RegexTest {
+
+	Logger LOG = LoggerFactory.getLogger(RegexTest.class);
+
+	private int count(Pattern pattern, String text, int chunk) throws IOException
+	{
+		RegexWriter writer = new RegexWriter(pattern, 64, false);
+		for (int i = 0; i < text.length(); i += chunk)
+			writer.write(text, i, Math.min(chunk, text.length() - i));
+		writer.close();
+		return writer.getCount();
+	}
+
+	private int countAll(Pattern pattern, String text)
+	{
+		Matcher matcher = pattern.matcher(text);
+		int count = 0;
+		while (matcher.find())
+			count++;
+		return count;
+	}
+
+	@Test
+	public void regexWriterTest() throws IOException
+	{
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 30000; i++) {
+			sb.append("고객 ").append(i).append(" 주민번호: ");
+			sb.append(String.format("%06d-%07d", i, i * 7)).append(", 계좌 110-").append(i).append('\n');
+		}
+		String text = sb.toString();
+
+		// with a required literal "주민번호: "
+		Pattern ssn = Pattern.compile("주민번호: \\d{6}-\\d{7}");
+		assertTrue(count(ssn, text, 1000) == countAll(ssn, text));
+		assertTrue(count(ssn, text, 7) == 30000);
+
+		// without a required literal
+		Pattern digits = Pattern.compile("\\d{6}-\\d{7}");
+		assertTrue(count(digits, text, 1000) == 30000);
+
+		// lookbehind across chunks
+		Pattern account = Pattern.compile("(?<=계좌 )110-\\d+");
+		assertTrue(count(account, text, 333) == 30000);
+
+		assertTrue(count(Pattern.compile("없는 패턴 \\d+"), text, 1000) == 0);
+	}
+
+	@Test(expected = ExtractionStoppedException.class)
+	public void regexWriterStopTest() throws IOException
+	{
+		RegexWriter writer = new RegexWriter(Pattern.compile("\\d+-\\d+"), true);
+		writer.write("call 010-1234");
+		writer.close();
+	}
+
+	@Test
+	public void regexWriterWithoutMatchTest() throws IOException
+	{
+		RegexWriter writer = new RegexWriter(Pattern.compile("(?i)HELLO"), false);
+		writer.write("say hello");
+		writer.close();
+		assertTrue(writer.isFound());
+		writer = new RegexWriter(Pattern.compile("a|b"), false);
+		writer.write("xyz");
+		writer.close();
+		assertFalse(writer.isFound());
+	}
+}
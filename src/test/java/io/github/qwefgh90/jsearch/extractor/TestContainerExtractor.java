@@ -0,0 +1,238 @@
+package io.github.qwefgh90.jsearch.extractor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.openxml4j.opc.TargetMode;
+import org.apache.poi.poifs.filesystem.Ole10Native;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.tika.mime.MediaType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
+import io.github.qwefgh90.jsearch.JSearch;
+import io.github.qwefgh90.jsearch.algorithm.QS;
+import io.github.qwefgh90.jsearch.algorithm.QSWriter;
+import io.github.qwefgh90.jsearch.extractor.hwp.HwpTextExtractorWrapper;
+
+public class TestContainerExtractor {
+	private static final String[] ENTRIES = { "hwp/HTTP.hwp", "text/1234_utf_8.txt", "doc/template.docx",
+			"hwpx/sample.hwpx" };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File zip(String name, String... paths) throws IOException {
+		File zip = folder.newFile(name);
+		try (ZipOutputStream output = new ZipOutputStream(new FileOutputStream(zip))) {
+			for (String path : paths) {
+				output.putNextEntry(new ZipEntry(path));
+				output.write(Files.readAllBytes(new File(getClass().getResource("/" + path).getFile()).toPath()));
+				output.closeEntry();
+			}
+		}
+		return zip;
+	}
+
+	private File tar(String name, String... paths) throws IOException {
+		File tar = folder.newFile(name);
+		try (TarArchiveOutputStream output = new TarArchiveOutputStream(new FileOutputStream(tar))) {
+			for (String path : paths) {
+				File file = new File(getClass().getResource("/" + path).getFile());
+				TarArchiveEntry entry = new TarArchiveEntry(path);
+				entry.setSize(file.length());
+				output.putArchiveEntry(entry);
+				output.write(Files.readAllBytes(file.toPath()));
+				output.closeArchiveEntry();
+			}
+		}
+		return tar;
+	}
+
+	/**
+	 * docx which has an OLE object of HWP (Insert - Object - From file in Word)
+	 */
+	private File docxWithHwp(String name) throws Exception {
+		File docx = folder.newFile(name);
+		File template = new File(getClass().getResource("/doc/template.docx").getFile());
+		Files.copy(template.toPath(), docx.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		byte[] hwp = Files.readAllBytes(new File(getClass().getResource("/hwp/HTTP.hwp").getFile()).toPath());
+		try (OPCPackage pkg = OPCPackage.open(docx)) {
+			PackagePart document = pkg.getPartsByContentType(
+					"application/vnd.openxmlformats-officedocument.wordprocessingml.document.main+xml").get(0);
+			PackagePart ole = pkg.createPart(PackagingURIHelper.createPartName("/word/embeddings/hwpObject1.bin"),
+					"application/vnd.openxmlformats-officedocument.oleObject");
+			try (POIFSFileSystem fs = new POIFSFileSystem(); OutputStream output = ole.getOutputStream()) {
+				ByteArrayOutputStream native10 = new ByteArrayOutputStream();
+				new Ole10Native("HTTP.hwp", "HTTP.hwp", "HTTP.hwp", hwp).writeOut(native10);
+				fs.createDocument(new ByteArrayInputStream(native10.toByteArray()), Ole10Native.OLE10_NATIVE);
+				fs.writeFilesystem(output);
+			}
+			document.addRelationship(ole.getPartName(), TargetMode.INTERNAL,
+					"http://schemas.openxmlformats.org/officeDocument/2006/relationships/oleObject");
+		}
+		return docx;
+	}
+
+	@Test
+	public void testEmbeddedHwp() throws Exception {
+		File docx = docxWithHwp("embedded.docx");
+		MediaType type = MediaType.application("vnd.openxmlformats-officedocument.wordprocessingml.document");
+		HwpTextExtractorWrapper hwp = new HwpTextExtractorWrapper();
+		hwp.extract(new File(getClass().getResource("/hwp/HTTP.hwp").getFile()));
+
+		String text = new ContainerExtractor().extract(docx, type);
+		assertTrue(text.contains("Float over text"));
+		assertTrue(text.contains(hwp.getText().trim()));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			assertEquals(text, new ContainerExtractor(executor).extract(docx, type));
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(text, JSearch.extractContentsFromFile(docx));
+
+		// a document in an archive
+		assertTrue(new ContainerExtractor().extract(zip("documents.zip", "doc/template.docx"),
+				MediaType.application("zip")).contains("Float over text"));
+	}
+
+	@Test
+	public void testEntriesUseRegistry() throws Exception {
+		File pdf = new File(getClass().getResource("/pdf/javascript.pdf").getFile());
+		File zip = folder.newFile("registry.zip");
+		try (ZipOutputStream output = new ZipOutputStream(new FileOutputStream(zip))) {
+			output.putNextEntry(new ZipEntry("javascript.pdf"));
+			output.write(Files.readAllBytes(pdf.toPath()));
+			output.closeEntry();
+			output.putNextEntry(new ZipEntry("sample.csv"));
+			output.write("name,value".getBytes(StandardCharsets.UTF_8));
+			output.closeEntry();
+		}
+
+		// PDF entries are extracted by PdfTextExtractor, and a plugin replaces a default extractor for entries too
+		Extractor reverse = new TestExtractorRegistry.ReverseExtractor(MediaType.text("csv"),
+				Extractor.DEFAULT_PRIORITY + 1);
+		ExtractorRegistry.getDefault().register(reverse);
+		try {
+			String text = new ContainerExtractor().extract(zip, MediaType.application("zip"));
+			assertTrue(text.contains(new PdfTextExtractor().extract(pdf).trim()));
+			assertTrue(text.contains("eulav,eman"));
+		} finally {
+			ExtractorRegistry.getDefault().unregister(reverse);
+		}
+		assertTrue(new ContainerExtractor().extract(zip, MediaType.application("zip")).contains("name,value"));
+	}
+
+	@Test
+	public void testMaxEntrySizeIsClamped() {
+		ContainerExtractor extractor = new ContainerExtractor();
+		extractor.setMaxEntrySize(4L * 1024 * 1024 * 1024);
+		assertEquals(Integer.MAX_VALUE, extractor.getMaxEntrySize());
+	}
+
+	@Test
+	public void testZip() throws Exception {
+		File zip = zip("entries.zip", ENTRIES);
+		String text = new ContainerExtractor().extract(zip, MediaType.application("zip"));
+
+		HwpTextExtractorWrapper hwp = new HwpTextExtractorWrapper();
+		hwp.extract(new File(getClass().getResource("/hwp/HTTP.hwp").getFile()));
+		File txt = new File(getClass().getResource("/text/1234_utf_8.txt").getFile());
+		File docx = new File(getClass().getResource("/doc/template.docx").getFile());
+		assertTrue(text.contains(hwp.getText().trim()));
+		assertTrue(text.contains(PlainTextExtractor.extract(txt).trim()));
+		assertTrue(text.contains(TikaTextExtractor.extract(docx).trim()));
+
+		assertEquals(text, JSearch.extractContentsFromFile(zip));
+		assertTrue(JSearch.isContainsKeywordFromFile(zip, "Protocol"));
+	}
+
+	@Test
+	public void testParallelIsSameAsSequential() throws Exception {
+		File zip = zip("entries.zip", ENTRIES);
+		File tar = tar("entries.tar", ENTRIES);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			String sequential = new ContainerExtractor().extract(zip, MediaType.application("zip"));
+			assertEquals(sequential, new ContainerExtractor(executor).extract(zip, MediaType.application("zip")));
+			assertEquals(sequential, new ContainerExtractor(executor).extract(tar, MediaType.application("x-tar")));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testNestedAndLimits() throws Exception {
+		File inner = zip("inner.zip", "hwp/HTTP.hwp");
+		File outer = folder.newFile("outer.zip");
+		try (ZipOutputStream output = new ZipOutputStream(new FileOutputStream(outer))) {
+			output.putNextEntry(new ZipEntry("inner.zip"));
+			output.write(Files.readAllBytes(inner.toPath()));
+			output.closeEntry();
+		}
+		ContainerExtractor extractor = new ContainerExtractor();
+		assertTrue(extractor.extract(outer, MediaType.application("zip")).contains("Protocol"));
+
+		extractor.setMaxDepth(1);
+		assertFalse(extractor.extract(outer, MediaType.application("zip")).contains("Protocol"));
+
+		extractor = new ContainerExtractor();
+		extractor.setMaxEntrySize(1024);
+		assertFalse(extractor.extract(zip("large.zip", "hwp/HTTP.hwp"), MediaType.application("zip"))
+				.contains("Protocol"));
+	}
+
+	@Test
+	public void testBrokenEntryIsSkipped() throws Exception {
+		File hwp = new File(getClass().getResource("/hwp/HTTP.hwp").getFile());
+		File txt = new File(getClass().getResource("/text/1234_utf_8.txt").getFile());
+		File zip = folder.newFile("broken.zip");
+		try (ZipOutputStream output = new ZipOutputStream(new FileOutputStream(zip))) {
+			output.putNextEntry(new ZipEntry("broken.hwp"));
+			output.write(Files.readAllBytes(hwp.toPath()), 0, 4096);
+			output.closeEntry();
+			output.putNextEntry(new ZipEntry("1234_utf_8.txt"));
+			output.write(Files.readAllBytes(txt.toPath()));
+			output.closeEntry();
+		}
+		String text = new ContainerExtractor().extract(zip, MediaType.application("zip"));
+		assertTrue(text.contains(PlainTextExtractor.extract(txt).trim()));
+	}
+
+	@Test(expected = ExtractionStoppedException.class)
+	public void testStop() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			QSWriter writer = new QSWriter(QS.compile("Protocol"), true);
+			new ContainerExtractor(executor).extract(zip("entries.zip", ENTRIES), MediaType.application("zip"),
+					writer);
+			writer.close();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
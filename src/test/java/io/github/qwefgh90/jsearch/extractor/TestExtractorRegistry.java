@@ -0,0 +1,159 @@
+package io.github.qwefgh90.jsearch.extractor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.tika.mime.MediaType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.github.qwefgh90.jsearch.JSearch;
+import io.github.qwefgh90.jsearch.algorithm.QS;
+
+public class TestExtractorRegistry {
+	/**
+	 * listed in META-INF/services of test resources
+	 */
+	public static class ReverseExtractor implements Extractor {
+		private final MediaType type;
+		private final int priority;
+
+		public ReverseExtractor() {
+			this(MediaType.text("x-jsearch-test"), DEFAULT_PRIORITY);
+		}
+
+		ReverseExtractor(MediaType type, int priority) {
+			this.type = type;
+			this.priority = priority;
+		}
+
+		@Override
+		public Set<MediaType> getSupportedTypes() {
+			return Collections.singleton(type);
+		}
+
+		@Override
+		public int getPriority() {
+			return priority;
+		}
+
+		@Override
+		public boolean isStreaming() {
+			return false;
+		}
+
+		@Override
+		public void extract(File file, MediaType type, Writer writer) throws IOException {
+			writer.write(new StringBuilder(PlainTextExtractor.extract(file)).reverse().toString());
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testDefaultRoutes() {
+		ExtractorRegistry registry = ExtractorRegistry.getDefault();
+		assertTrue(registry.getExtractor(MediaType.application("x-hwp-v5")) instanceof DefaultExtractors.Hwp);
+		assertTrue(registry.getExtractor(MediaType.application("hwp+zip")) instanceof DefaultExtractors.Hwpx);
+		assertTrue(registry.getExtractor(MediaType.parse("text/plain; charset=UTF-8")) instanceof DefaultExtractors.PlainText);
+		assertTrue(registry.getExtractor(MediaType.application("pdf")) instanceof DefaultExtractors.Pdf);
+		assertTrue(registry.getExtractor(MediaType.application("zip")) instanceof DefaultExtractors.Container);
+		assertTrue(registry.getExtractor(MediaType.application("vnd.ms-excel")) instanceof DefaultExtractors.Spreadsheet);
+		assertTrue(registry.getExtractor(MediaType.application("msword")) instanceof DefaultExtractors.Container);
+		assertTrue(registry.getExtractor(MediaType.text("html")) instanceof DefaultExtractors.Tika);
+
+		// found with ServiceLoader
+		assertTrue(registry.getExtractor(MediaType.text("x-jsearch-test")) instanceof ReverseExtractor);
+	}
+
+	@Test
+	public void testPriority() throws Exception {
+		ExtractorRegistry registry = new ExtractorRegistry();
+		assertNull(registry.getExtractor(MediaType.TEXT_PLAIN));
+
+		Extractor low = new ReverseExtractor(MediaType.TEXT_PLAIN, Extractor.DEFAULT_PRIORITY - 1);
+		Extractor high = new ReverseExtractor(MediaType.TEXT_PLAIN, Extractor.DEFAULT_PRIORITY + 1);
+		registry.register(low);
+		for (Extractor extractor : DefaultExtractors.getExtractors())
+			registry.register(extractor);
+		assertTrue(registry.getExtractor(MediaType.TEXT_PLAIN) instanceof DefaultExtractors.PlainText);
+		registry.register(high);
+		assertSame(high, registry.getExtractor(MediaType.TEXT_PLAIN));
+		assertEquals(9, registry.getExtractors().size());
+
+		registry.unregister(high);
+		assertTrue(registry.getExtractor(MediaType.TEXT_PLAIN) instanceof DefaultExtractors.PlainText);
+		assertEquals(8, registry.getExtractors().size());
+	}
+
+	@Test
+	public void testSearchUsesRegistry() throws Exception {
+		File csv = folder.newFile("sample.csv");
+		Files.write(csv.toPath(), "name,value".getBytes(StandardCharsets.UTF_8));
+
+		// a higher priority replaces a default extractor in every API
+		Extractor reverse = new ReverseExtractor(MediaType.text("csv"), Extractor.DEFAULT_PRIORITY + 1);
+		ExtractorRegistry.getDefault().register(reverse);
+		try {
+			assertEquals("eulav,eman", JSearch.extractContentsFromFile(csv));
+			assertTrue(JSearch.isContainsKeywordFromFile(csv, "eulav"));
+			assertFalse(JSearch.isContainsKeywordFromFile(csv, "value"));
+			assertTrue(JSearch.isContainsKeywordFromFile(csv, "EULAV", QS.CASE_INSENSITIVE));
+			assertTrue(JSearch.isContainsPatternFromFile(csv, Pattern.compile("e[a-z]+v")));
+
+			// ReverseExtractor isn't a MetadataExtractor
+			assertEquals("text/csv", JSearch.extractMetadataFromFile(csv).getContentType());
+		} finally {
+			// the default registry is shared by tests in this JVM
+			ExtractorRegistry.getDefault().unregister(reverse);
+		}
+		assertTrue(JSearch.isContainsKeywordFromFile(csv, "value"));
+	}
+
+	@Test
+	public void testMetadata() throws Exception {
+		assertTrue(ExtractorRegistry.getDefault().getExtractor(MediaType.application("x-hwp-v5")) instanceof MetadataExtractor);
+		File hwp = new File(getClass().getResource("/hwp/HTTP.hwp").getFile());
+		File txt = new File(getClass().getResource("/text/1234_utf_8.txt").getFile());
+		assertEquals("application/x-hwp-v5", JSearch.extractMetadataFromFile(hwp).getContentType());
+		assertEquals("text/plain", JSearch.extractMetadataFromFile(txt).getContentType());
+	}
+
+	@Test
+	public void testInvalidHwp() throws Exception {
+		// OLE2 file which isn't HWP has no text and doesn't stop a scan of directory
+		File hwp = folder.newFile("fake.hwp");
+		File doc = new File(getClass().getResource("/doc/1234.doc").getFile());
+		Files.copy(doc.toPath(), hwp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		File txt = folder.newFile("keyword.txt");
+		Files.write(txt.toPath(), "a keyword".getBytes(StandardCharsets.UTF_8));
+
+		assertEquals("", JSearch.extractContentsFromFile(hwp));
+		assertFalse(JSearch.isContainsKeywordFromFile(hwp, "keyword"));
+		assertEquals(Collections.singletonList(txt),
+				JSearch.getFileListContainsKeywordFromDirectory(folder.getRoot().getPath(), "keyword", false));
+	}
+
+	@Test
+	public void testSameAsBefore() throws Exception {
+		File txt = new File(getClass().getResource("/text/1234_utf_8.txt").getFile());
+		File doc = new File(getClass().getResource("/doc/1234.doc").getFile());
+		assertEquals(PlainTextExtractor.extract(txt), JSearch.extractContentsFromFile(txt));
+		assertEquals(TikaTextExtractor.extract(doc), JSearch.extractContentsFromFile(doc));
+	}
+}
@@ -0,0 +1,234 @@
+package io.github.qwefgh90.jsearch.extractor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentNameDictionary;
+import org.apache.pdfbox.pdmodel.PDEmbeddedFilesNameTreeNode;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.filespecification.PDComplexFileSpecification;
+import org.apache.pdfbox.pdmodel.common.filespecification.PDEmbeddedFile;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationFileAttachment;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationText;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDTextField;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
+import io.github.qwefgh90.jsearch.JSearch;
+import io.github.qwefgh90.jsearch.algorithm.QS;
+import io.github.qwefgh90.jsearch.algorithm.QSWriter;
+import io.github.qwefgh90.jsearch.extractor.hwp.HwpTextExtractorWrapper;
+
+public class TestPdfTextExtractor {
+	private static final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	@AfterClass
+	public static void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * page 1 has a comment, page 2 has a text field
+	 */
+	private File form() throws IOException {
+		File file = folder.newFile("form.pdf");
+		try (PDDocument document = new PDDocument()) {
+			PDAcroForm form = new PDAcroForm(document);
+			PDResources resources = new PDResources();
+			resources.put(COSName.getPDFName("Helv"), PDType1Font.HELVETICA);
+			form.setDefaultResources(resources);
+			form.setDefaultAppearance("/Helv 0 Tf 0 g");
+			document.getDocumentCatalog().setAcroForm(form);
+
+			for (int i = 1; i <= 2; i++) {
+				PDPage page = new PDPage();
+				document.addPage(page);
+				try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+					content.beginText();
+					content.setFont(PDType1Font.HELVETICA, 12);
+					content.newLineAtOffset(50, 750);
+					content.showText("body of page " + i);
+					content.endText();
+				}
+				if (i == 1) {
+					PDAnnotationText comment = new PDAnnotationText();
+					comment.setRectangle(new PDRectangle(50, 600, 20, 20));
+					comment.setContents("a comment on page one");
+					page.getAnnotations().add(comment);
+				} else {
+					PDTextField field = new PDTextField(form);
+					field.setPartialName("applicant");
+					PDAnnotationWidget widget = field.getWidgets().get(0);
+					widget.setRectangle(new PDRectangle(50, 600, 200, 20));
+					widget.setPage(page);
+					page.getAnnotations().add(widget);
+					form.getFields().add(field);
+					field.setValue("Hong Gildong");
+				}
+			}
+			document.save(file);
+		}
+		return file;
+	}
+
+	/**
+	 * a text file in EmbeddedFiles name tree (under a kid node) and HWP in a file attachment annotation
+	 */
+	private File attachments() throws IOException {
+		File file = folder.newFile("attachments.pdf");
+		byte[] hwp = Files.readAllBytes(new File(getClass().getResource("/hwp/HTTP.hwp").getFile()).toPath());
+		try (PDDocument document = new PDDocument()) {
+			PDPage page = new PDPage();
+			document.addPage(page);
+			try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+				content.beginText();
+				content.setFont(PDType1Font.HELVETICA, 12);
+				content.newLineAtOffset(50, 750);
+				content.showText("body with attachments");
+				content.endText();
+			}
+
+			PDEmbeddedFilesNameTreeNode kid = new PDEmbeddedFilesNameTreeNode();
+			kid.setNames(Collections.singletonMap("notes.txt",
+					attachment(document, "notes.txt", "a keyword only in an attachment".getBytes("UTF-8"))));
+			PDEmbeddedFilesNameTreeNode tree = new PDEmbeddedFilesNameTreeNode();
+			tree.setKids(Collections.singletonList(kid));
+			PDDocumentNameDictionary names = new PDDocumentNameDictionary(document.getDocumentCatalog());
+			names.setEmbeddedFiles(tree);
+			document.getDocumentCatalog().setNames(names);
+
+			PDAnnotationFileAttachment annotation = new PDAnnotationFileAttachment();
+			annotation.setRectangle(new PDRectangle(50, 600, 20, 20));
+			annotation.setFile(attachment(document, "HTTP.hwp", hwp));
+			page.getAnnotations().add(annotation);
+			document.save(file);
+		}
+		return file;
+	}
+
+	private static PDComplexFileSpecification attachment(PDDocument document, String name, byte[] data)
+			throws IOException {
+		PDEmbeddedFile embedded = new PDEmbeddedFile(document, new ByteArrayInputStream(data));
+		embedded.setSize(data.length);
+		PDComplexFileSpecification specification = new PDComplexFileSpecification();
+		specification.setFile(name);
+		specification.setEmbeddedFile(embedded);
+		return specification;
+	}
+
+	@Test
+	public void testParallelIsSameAsSequential() throws Exception {
+		for (String path : new String[] { "pdf/javascript.pdf", "pdf/boot.pdf" }) {
+			File file = new File(getClass().getResource("/" + path).getFile());
+			String sequential = new PdfTextExtractor().extract(file);
+			PdfTextExtractor parallel = new PdfTextExtractor(executor);
+			parallel.setPagesPerTask(3);
+			assertEquals(path, sequential, parallel.extract(file));
+			assertEquals(path, sequential, JSearch.extractContentsFromFile(file));
+		}
+
+		File boot = new File(getClass().getResource("/pdf/boot.pdf").getFile());
+		try (PDDocument document = PDDocument.load(boot)) {
+			assertEquals(new PDFTextStripper().getText(document), new PdfTextExtractor().extract(boot));
+		}
+	}
+
+	@Test
+	public void testFindPages() throws Exception {
+		File boot = new File(getClass().getResource("/pdf/boot.pdf").getFile());
+		PdfTextExtractor extractor = new PdfTextExtractor(executor);
+		extractor.setPagesPerTask(2);
+		List<Integer> pages = extractor.findPages(boot, QS.compile("linker"));
+		assertFalse(pages.isEmpty());
+		assertEquals(pages, new PdfTextExtractor().findPages(boot, QS.compile("linker")));
+
+		try (PDDocument document = PDDocument.load(boot)) {
+			PDFTextStripper stripper = new PDFTextStripper();
+			for (int page = 1; page <= document.getNumberOfPages(); page++) {
+				stripper.setStartPage(page);
+				stripper.setEndPage(page);
+				assertEquals(pages.contains(page), stripper.getText(document).contains("linker"));
+			}
+		}
+		assertEquals(pages, JSearch.getPageListContainsKeywordFromPdf(boot, "LINKER", QS.CASE_INSENSITIVE)
+				.subList(0, pages.size()));
+	}
+
+	@Test(expected = ExtractionStoppedException.class)
+	public void testStop() throws Exception {
+		PdfTextExtractor extractor = new PdfTextExtractor(executor);
+		extractor.setPagesPerTask(1);
+		QSWriter writer = new QSWriter(QS.compile("NewHeart"), true);
+		extractor.extract(new File(getClass().getResource("/pdf/javascript.pdf").getFile()), writer);
+		writer.close();
+	}
+
+	@Test
+	public void testAnnotationsAndFields() throws Exception {
+		File file = form();
+		String text = new PdfTextExtractor().extract(file);
+		assertTrue(text.indexOf("body of page 1") < text.indexOf("a comment on page one"));
+		assertTrue(text.indexOf("a comment on page one") < text.indexOf("body of page 2"));
+		assertTrue(text.endsWith("applicant: Hong Gildong\n"));
+
+		PdfTextExtractor parallel = new PdfTextExtractor(executor);
+		parallel.setPagesPerTask(1);
+		assertEquals(text, parallel.extract(file));
+
+		assertEquals(Arrays.asList(1), parallel.findPages(file, QS.compile("comment")));
+		assertEquals(Arrays.asList(2), parallel.findPages(file, QS.compile("Gildong")));
+		assertTrue(JSearch.isContainsKeywordFromFile(file, "Hong Gildong"));
+	}
+
+	@Test
+	public void testAttachments() throws Exception {
+		File file = attachments();
+		HwpTextExtractorWrapper hwp = new HwpTextExtractorWrapper();
+		hwp.extract(new File(getClass().getResource("/hwp/HTTP.hwp").getFile()));
+
+		String text = new PdfTextExtractor().extract(file);
+		assertTrue(text.startsWith("body with attachments"));
+		assertTrue(text.contains("a keyword only in an attachment"));
+		assertTrue(text.contains(hwp.getText().trim()));
+
+		PdfTextExtractor parallel = new PdfTextExtractor(executor);
+		parallel.setPagesPerTask(1);
+		assertEquals(text, parallel.extract(file));
+		assertTrue(JSearch.isContainsKeywordFromFile(file, "only in an attachment"));
+		assertTrue(JSearch.isContainsKeywordFromFile(file, "Protocol"));
+	}
+
+	@Test
+	public void testContainsKeyword() throws Exception {
+		File javascript = new File(getClass().getResource("/pdf/javascript.pdf").getFile());
+		File boot = new File(getClass().getResource("/pdf/boot.pdf").getFile());
+		assertTrue(JSearch.isContainsKeywordFromFile(javascript, "vbscript:msgbox()", QS.NORMALIZE));
+		assertFalse(JSearch.isContainsKeywordFromFile(boot, "vbscript:msgbox()", QS.NORMALIZE));
+	}
+}
@@ -0,0 +1,118 @@
+package io.github.qwefgh90.jsearch.extractor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FilterWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.tika.mime.MediaType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
+import io.github.qwefgh90.jsearch.JSearch;
+import io.github.qwefgh90.jsearch.algorithm.QS;
+
+public class TestSpreadsheetExtractor {
+	private static final MediaType XLS = MediaType.application("vnd.ms-excel");
+	private static final MediaType XLSX = MediaType
+			.application("vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File workbook(Workbook workbook, String name) throws IOException {
+		for (int s = 0; s < 3; s++) {
+			Sheet sheet = workbook.createSheet("시트" + s);
+			for (int r = 0; r < 100; r++) {
+				Row row = sheet.createRow(r);
+				row.createCell(0).setCellValue("셀 " + s + "-" + r);
+				row.createCell(1).setCellValue(r);
+				row.createCell(2).setCellFormula("B" + (r + 1) + "*2");
+				row.createCell(3).setCellFormula("CONCATENATE(\"f\",A" + (r + 1) + ")");
+			}
+		}
+		workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+		File file = folder.newFile(name);
+		try (FileOutputStream output = new FileOutputStream(file)) {
+			workbook.write(output);
+		}
+		workbook.close();
+		return file;
+	}
+
+	@Test
+	public void testXlsAndXlsx() throws Exception {
+		File xls = workbook(new HSSFWorkbook(), "sample.xls");
+		File xlsx = workbook(new XSSFWorkbook(), "sample.xlsx");
+		String text = new SpreadsheetExtractor().extract(xls, XLS);
+		assertEquals(text, new SpreadsheetExtractor().extract(xlsx, XLSX));
+		assertTrue(text.startsWith("시트0\n셀 0-0\t0\t0\tf셀 0-0\n셀 0-1\t1\t2\tf셀 0-1\n"));
+		assertTrue(text.contains("시트2\n셀 2-0\t0\t0\tf셀 2-0\n"));
+		assertTrue(text.contains("셀 2-99\t99\t198\tf셀 2-99\n"));
+
+		assertEquals(text, JSearch.extractContentsFromFile(xls));
+		assertEquals(text, JSearch.extractContentsFromFile(xlsx));
+
+		String fixture = JSearch.extractContentsFromFile(new File(getClass().getResource("/xlsx/1234.xlsx").getFile()));
+		assertTrue(fixture.contains("프로젝트 준비"));
+	}
+
+	@Test
+	public void testLimits() throws Exception {
+		for (File file : new File[] { workbook(new HSSFWorkbook(), "sample.xls"),
+				workbook(new XSSFWorkbook(), "sample.xlsx") }) {
+			MediaType type = file.getName().endsWith("xls") ? XLS : XLSX;
+			SpreadsheetExtractor extractor = new SpreadsheetExtractor();
+			extractor.setMaxSheets(2);
+			extractor.setMaxRows(10);
+			StringWriter writer = new StringWriter();
+			assertFalse(extractor.extract(file, type, writer));
+			String text = writer.toString();
+			assertTrue(text.contains("셀 1-9\t"));
+			assertFalse(text.contains("셀 1-10\t"));
+			assertFalse(text.contains("시트2"));
+
+			assertTrue(new SpreadsheetExtractor().extract(file, type, new StringWriter()));
+		}
+	}
+
+	@Test
+	public void testStop() throws Exception {
+		for (File file : new File[] { workbook(new HSSFWorkbook(), "sample.xls"),
+				workbook(new XSSFWorkbook(), "sample.xlsx") }) {
+			MediaType type = file.getName().endsWith("xls") ? XLS : XLSX;
+			StringWriter text = new StringWriter();
+			Writer writer = new FilterWriter(text) {
+				@Override
+				public void write(String str, int off, int len) throws IOException {
+					if (str.startsWith("셀 0-5", off))
+						throw new ExtractionStoppedException("found");
+					super.write(str, off, len);
+				}
+			};
+			try {
+				new SpreadsheetExtractor().extract(file, type, writer);
+				fail();
+			} catch (ExtractionStoppedException e) {
+				// aborted at a cell
+			}
+			assertTrue(text.toString().contains("셀 0-4"));
+			assertFalse(text.toString().contains("셀 0-6"));
+			assertTrue(JSearch.isContainsKeywordFromFile(file, "셀 2-50", QS.NORMALIZE));
+		}
+	}
+}
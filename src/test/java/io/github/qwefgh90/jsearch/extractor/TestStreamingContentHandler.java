@@ -0,0 +1,60 @@
+package io.github.qwefgh90.jsearch.extractor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.StringWriter;
+
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.sax.BodyContentHandler;
+import org.junit.Test;
+
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
+import io.github.qwefgh90.jsearch.algorithm.QS;
+import io.github.qwefgh90.jsearch.algorithm.QSWriter;
+
+public class TestStreamingContentHandler {
+	@Test
+	public void testSameAsBodyContentHandler() throws Exception {
+		AutoDetectParser parser = new AutoDetectParser();
+		for (String path : new String[] { "doc/template.docx", "pdf/boot.pdf", "xml/web.xml" }) {
+			BodyContentHandler body = new BodyContentHandler(-1);
+			StringWriter writer = new StringWriter();
+			StreamingContentHandler streaming = new StreamingContentHandler(writer);
+			File file = new File(getClass().getResource("/" + path).getFile());
+			try (InputStream input = TikaInputStream.get(file.toPath())) {
+				parser.parse(input, body, new Metadata());
+			}
+			try (InputStream input = TikaInputStream.get(file.toPath())) {
+				parser.parse(input, streaming, new Metadata());
+			}
+			assertEquals(path, body.toString(), writer.toString());
+			assertEquals(path, writer.toString().length(), streaming.getWrittenLength());
+		}
+	}
+
+	@Test
+	public void testLimit() throws Exception {
+		File pdf = new File(getClass().getResource("/pdf/boot.pdf").getFile());
+		File xml = new File(getClass().getResource("/xml/web.xml").getFile());
+		StringWriter writer = new StringWriter();
+		assertFalse(TikaTextExtractor.extract(pdf, null, 100, writer));
+		assertEquals(100, writer.toString().length());
+
+		writer = new StringWriter();
+		assertTrue(TikaTextExtractor.extract(xml, null, Integer.MAX_VALUE, writer));
+		assertEquals(TikaTextExtractor.extract(xml), writer.toString());
+	}
+
+	@Test(expected = ExtractionStoppedException.class)
+	public void testStop() throws Exception {
+		QSWriter writer = new QSWriter(QS.compile("linker"), true);
+		TikaTextExtractor.extract(new File(getClass().getResource("/pdf/boot.pdf").getFile()), writer);
+		writer.close();
+	}
+}
@@ -0,0 +1,108 @@
+package io.github.qwefgh90.jsearch.extractor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.mime.MediaType;
+import org.apache.tika.parser.EmptyParser;
+import org.apache.tika.parser.epub.EpubParser;
+import org.apache.tika.parser.microsoft.OfficeParser;
+import org.apache.tika.parser.microsoft.ooxml.OOXMLParser;
+import org.apache.tika.parser.pdf.PDFParserConfig;
+import org.apache.tika.parser.pkg.PackageParser;
+import org.apache.tika.parser.txt.TXTParser;
+import org.apache.tika.sax.BodyContentHandler;
+import org.hamcrest.core.StringContains;
+import org.junit.Test;
+
+public class TestTikaParserRegistry {
+	@Test
+	public void testLazyParser() {
+		TikaParserRegistry registry = TikaParserRegistry.createDefault();
+		assertTrue(registry.getCreatedParsers().isEmpty());
+
+		// docx -> application/x-tika-ooxml
+		MediaType docx = MediaType.parse("application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+		assertTrue(registry.getParser(docx) instanceof OOXMLParser);
+		assertEquals(1, registry.getCreatedParsers().size());
+
+		// embedded images are disabled
+		assertSame(EmptyParser.INSTANCE, registry.getParser(MediaType.image("png")));
+
+		assertSame(EmptyParser.INSTANCE, registry.getParser(MediaType.audio("mpeg")));
+		assertEquals(1, registry.getCreatedParsers().size());
+
+		registry.warmUp();
+		assertEquals(12, registry.getCreatedParsers().size());
+	}
+
+	@Test
+	public void testSpecializedSubtypes() {
+		TikaParserRegistry registry = TikaParserRegistry.createDefault();
+		assertTrue(registry.getParser(MediaType.application("zip")) instanceof PackageParser);
+
+		// subtypes of zip which PackageParser doesn't parse
+		assertTrue(registry.getParser(MediaType.application("epub+zip")) instanceof EpubParser);
+		assertSame(EmptyParser.INSTANCE, registry.getParser(MediaType.application("vnd.apple.pages")));
+
+		// encrypted OOXML is an OLE2 container
+		assertTrue(registry.getParser(MediaType.application("x-tika-ooxml-protected")) instanceof OfficeParser);
+
+		// subtypes of text/plain which TXTParser doesn't declare
+		assertTrue(registry.getParser(MediaType.text("csv")) instanceof TXTParser);
+		assertTrue(registry.getParser(MediaType.text("x-java-properties")) instanceof TXTParser);
+		registry.unregister("text/plain");
+		assertSame(EmptyParser.INSTANCE, registry.getParser(MediaType.text("csv")));
+	}
+
+	@Test
+	public void testFallbackIsNotLoaded() throws Exception {
+		TikaParserRegistry registry = TikaParserRegistry.createDefault();
+		assertFalse(registry.isAutoDetectFallback());
+		assertSame(EmptyParser.INSTANCE, registry.getParser(MediaType.OCTET_STREAM));
+		assertSame(EmptyParser.INSTANCE, registry.getParser(MediaType.audio("mpeg")));
+		assertSame(EmptyParser.INSTANCE, registry.getParser(MediaType.application("x-sqlite3")));
+
+		// detected as application/octet-stream
+		BodyContentHandler handler = new BodyContentHandler(-1);
+		try (InputStream input = new ByteArrayInputStream(new byte[] { 0, 1, 2, 3, (byte) 0xfe, (byte) 0xff })) {
+			registry.parse(input, handler, new Metadata(), registry.createContext(true));
+		}
+		assertEquals("", handler.toString());
+		assertFalse(TikaParserRegistry.isFallbackLoaded());
+	}
+
+	@Test
+	public void testOcr() {
+		TikaParserRegistry registry = TikaParserRegistry.createDefault();
+		assertEquals(PDFParserConfig.OCR_STRATEGY.NO_OCR,
+				registry.createContext(true).get(PDFParserConfig.class).getOcrStrategy());
+		registry.setOcr(true);
+		PDFParserConfig config = registry.createContext(true).get(PDFParserConfig.class);
+		assertEquals(PDFParserConfig.OCR_STRATEGY.OCR_AND_TEXT_EXTRACTION, config.getOcrStrategy());
+		assertFalse(config.getExtractInlineImages());
+	}
+
+	@Test
+	public void testDetectAndParse() throws Exception {
+		TikaParserRegistry registry = TikaParserRegistry.createDefault();
+		BodyContentHandler handler = new BodyContentHandler(-1);
+		Metadata metadata = new Metadata();
+		File docx = new File(getClass().getResource("/doc/template.docx").getFile());
+		try (InputStream input = TikaInputStream.get(docx.toPath())) {
+			registry.parse(input, handler, metadata, registry.createContext(true));
+		}
+		assertThat(handler.toString(), new StringContains("Float over text"));
+		assertEquals("application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+				metadata.get(Metadata.CONTENT_TYPE));
+	}
+}
@@ -24,13 +24,26 @@
  */
 package io.github.qwefgh90.jsearch.extractor.hwp;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
 import java.util.StringTokenizer;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import io.github.qwefgh90.jsearch.extractor.hwp.HwpTextExtractorV3;
 
@@ -75,4 +88,133 @@ public class TestHwpV3Extractor {
 		//System.out.println(extract("v3/4e00-62ff.hwp"));
 		//System.out.println(extract("v3/han_special_char_3.0.hwp"));
 	}
-}
\ No newline at end of file
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * 손상된 파일은 IOException 으로 끝나야 한다 (StackOverflowError, 무한 루프 없음)
+	 */
+	@Test(timeout = 60000)
+	public void testCorruptedFile() throws IOException {
+		for (String path : new String[] { "v3/4e00-62ff.hwp", "v3/han_special_char_3.0.hwp" }) {
+			byte[] original = Files.readAllBytes(new File(getClass().getResource("/" + path).getFile()).toPath());
+			Random random = new Random(path.hashCode());
+			for (int i = 0; i < 100; i++) {
+				byte[] data = original.clone();
+				// 시그니처 이후를 손상시킨다
+				for (int j = 0; j < 1 + random.nextInt(16); j++)
+					data[30 + random.nextInt(data.length - 30)] = (byte) random.nextInt(256);
+				int length = i % 4 == 0 ? 30 + random.nextInt(data.length - 30) : data.length;
+
+				File file = folder.newFile();
+				Files.write(file.toPath(), Arrays.copyOf(data, length));
+				try {
+					HwpTextExtractorV3.extractText(file, new StringWriter());
+				} catch (IOException e) {
+					// expected
+				}
+			}
+		}
+	}
+
+	/**
+	 * 머리말 안의 머리말이 MAX_DEPTH 보다 깊으면 스택을 키우지 않고 멈춘다
+	 */
+	@Test(timeout = 10000)
+	public void testTooDeepParagraphList() throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		for (int i = 0; i < 65; i++) {
+			writeParaHeader(body, 4);
+			writeUint16(body, 16); // 머리말/꼬리말
+			body.write(new byte[16]);
+		}
+		File file = folder.newFile();
+		Files.write(file.toPath(), document(body.toByteArray()));
+		try {
+			HwpTextExtractorV3.extractText(file, new StringWriter());
+			fail();
+		} catch (IOException e) {
+			assertEquals("Too deep paragraph list", e.getMessage());
+		}
+	}
+
+	/**
+	 * 표의 셀 수, 필드코드의 정보 길이가 파일보다 크면 끝까지 읽지 않고 setLimit 에서 멈춘다
+	 */
+	@Test(timeout = 10000)
+	public void testOversizedLength() throws IOException {
+		ByteArrayOutputStream table = new ByteArrayOutputStream();
+		writeParaHeader(table, 4);
+		writeUint16(table, 10); // 표
+		table.write(new byte[6 + 80]);
+		writeUint16(table, 0xFFFF); // n_cells, 27 * 65535 바이트
+		table.write(new byte[2]);
+
+		ByteArrayOutputStream field = new ByteArrayOutputStream();
+		writeParaHeader(field, 4);
+		writeUint16(field, 5); // 필드코드
+		writeUint16(field, 0xFFFF); // 정보 길이 4GB
+		writeUint16(field, 0xFFFF);
+		writeUint16(field, 5);
+
+		for (byte[] body : new byte[][] { table.toByteArray(), field.toByteArray() }) {
+			byte[] data = document(body);
+			// 파일 뒤에 끝없이 0 이 이어지는 스트림. 길이 값을 믿으면 모두 건너뛴다
+			final long[] read = new long[1];
+			InputStream zeros = new InputStream() {
+				@Override
+				public int read() {
+					read[0]++;
+					return 0;
+				}
+
+				@Override
+				public long skip(long n) {
+					read[0] += n;
+					return n;
+				}
+			};
+			InputStream input = new SequenceInputStream(new ByteArrayInputStream(data), zeros);
+			input.skip(HwpTextExtractorV3.getSignatureLength());
+			try {
+				HwpTextExtractorV3.extractText(input, data.length - HwpTextExtractorV3.getSignatureLength(),
+						new StringWriter());
+				fail();
+			} catch (IOException e) {
+				assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid length"));
+			}
+			assertTrue(read[0] < 64 * 1024);
+		}
+	}
+
+	/**
+	 * 시그니처, 압축하지 않은 문서 정보, 빈 글꼴/스타일 다음에 body 를 붙인다
+	 */
+	private static byte[] document(byte[] body) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		output.write("HWP Document File V3.00 \u001A\u0001\u0002\u0003\u0004\u0005".getBytes());
+		// 문서 정보 128 바이트 (암호, 압축, 정보 블럭 길이 모두 0) + 문서 요약 1008 바이트
+		output.write(new byte[128 + 1008]);
+		// 글꼴이름 7개, 스타일 개수
+		output.write(new byte[2 * 8]);
+		output.write(body);
+		return output.toByteArray();
+	}
+
+	/**
+	 * 글자 모양, 줄 정보 없는 43 바이트 문단 정보
+	 */
+	private static void writeParaHeader(ByteArrayOutputStream output, int nChars) throws IOException {
+		output.write(1); // prev_paragraph_shape
+		writeUint16(output, nChars);
+		writeUint16(output, 0); // n_lines
+		output.write(0); // char_shape_included
+		output.write(new byte[37]);
+	}
+
+	private static void writeUint16(ByteArrayOutputStream output, int value) {
+		output.write(value & 0xFF);
+		output.write((value >> 8) & 0xFF);
+	}
+}
@@ -24,16 +24,44 @@
  */
 package io.github.qwefgh90.jsearch.extractor.hwp;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.poi.poifs.filesystem.DirectoryEntry;
+import org.apache.poi.poifs.filesystem.DocumentEntry;
+import org.apache.poi.poifs.filesystem.DocumentInputStream;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.util.IOUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
 
 import io.github.qwefgh90.jsearch.extractor.hwp.HwpTextExtractorV5;
 
 public class TestHwpV5Extractor {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	private String extract(String path) throws FileNotFoundException,
 			IOException {
 //		File file = new File(path);
@@ -79,4 +107,133 @@ public class TestHwpV5Extractor {
 //		System.out.println(extract("v5/han_special_char.hwp"));
 		//System.out.println(extract("v5/test-distribute.hwp"));
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testParallelSections() throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (String path : new String[] { "v5/han_grammar.hwp", "v5/han_special_char.hwp",
+					"v5/test-distribute.hwp", "hwp/HTTP.hwp", "hwp/VHD.hwp" }) {
+				File file = new File(getClass().getResource("/" + path).getFile());
+				StringWriter parallel = new StringWriter(4096);
+				assertTrue(HwpTextExtractorV5.extractText(file, parallel, executor));
+				assertEquals(path, extract(path), parallel.toString());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Section0 을 count 개로 복사한 문서
+	 */
+	private File copySections(String path, int count) throws IOException {
+		File file = folder.newFile("sections.hwp");
+		try (InputStream input = new FileInputStream(new File(getClass().getResource("/" + path).getFile()))) {
+			POIFSFileSystem fs = new POIFSFileSystem(input);
+			DirectoryEntry body = (DirectoryEntry) fs.getRoot().getEntry("BodyText");
+			byte[] section;
+			try (InputStream sectionInput = new DocumentInputStream((DocumentEntry) body.getEntry("Section0"))) {
+				section = IOUtils.toByteArray(sectionInput);
+			}
+			for (int i = 1; i < count; i++) {
+				if (body.hasEntry("Section" + i))
+					body.getEntry("Section" + i).delete();
+				body.createDocument("Section" + i, new ByteArrayInputStream(section));
+			}
+			try (OutputStream output = new FileOutputStream(file)) {
+				fs.writeFilesystem(output);
+			}
+			fs.close();
+		}
+		return file;
+	}
+
+	@Test
+	public void testPendingSectionsAreBounded() throws IOException {
+		int maxPending = Runtime.getRuntime().availableProcessors() * 2;
+		File file = copySections("v5/han_grammar.hwp", maxPending + 10);
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>());
+		try {
+			StringWriter parallel = new StringWriter();
+			assertTrue(HwpTextExtractorV5.extractText(file, parallel, executor));
+			assertEquals(maxPending + 10, executor.getTaskCount());
+
+			// 첫 Section 을 쓰면 멈춘다
+			Writer stop = new Writer() {
+				@Override
+				public void write(char[] cbuf, int off, int len) throws IOException {
+					throw new ExtractionStoppedException("found");
+				}
+
+				@Override
+				public void flush() {
+				}
+
+				@Override
+				public void close() {
+				}
+			};
+			long before = executor.getTaskCount();
+			try {
+				HwpTextExtractorV5.extractText(file, stop, executor);
+			} catch (ExtractionStoppedException e) {
+				// 중단
+			}
+			assertTrue(executor.getTaskCount() - before <= maxPending);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testInflaterPool() throws IOException {
+		extract("v5/han_grammar.hwp");
+		long created = InflaterPool.getCreatedCount();
+		for (int i = 0; i < 20; i++)
+			extract("v5/han_grammar.hwp");
+
+		// inflaters are reused and not leaked
+		assertEquals(created, InflaterPool.getCreatedCount());
+		assertEquals(0, InflaterPool.getActiveCount());
+		assertEquals(InflaterPool.getIdleCount(), InflaterPool.getNativeCount());
+		assertTrue(InflaterPool.getInflatedBytes() > 0);
+
+		InflaterPool.clear();
+		assertEquals(0, InflaterPool.getNativeCount());
+	}
+
+	@Test
+	public void testSections() throws IOException {
+		HwpTextExtractorWrapper wrapper = new HwpTextExtractorWrapper();
+		for (String path : new String[] { "v5/han_grammar.hwp", "v5/test-distribute.hwp", "hwp/HTTP.hwp" }) {
+			File file = new File(getClass().getResource("/" + path).getFile());
+			String text = extract(path);
+
+			List<HwpSection> sections = wrapper.getSections(file);
+			assertTrue(sections.size() > 0);
+			StringBuilder all = new StringBuilder();
+			for (HwpSection section : sections) {
+				assertTrue(section.getSize() > 0);
+				StringWriter writer = new StringWriter();
+				assertTrue(wrapper.extractSections(file, writer, section.getIndex()));
+				all.append(writer);
+			}
+			assertEquals(path, text, all.toString());
+
+			StringWriter prefix = new StringWriter();
+			assertTrue(wrapper.extractPrefix(file, 100, prefix));
+			assertEquals(path, text.substring(0, Math.min(100, text.length())), prefix.toString());
+		}
+
+		// HWP 3.0
+		File v3 = new File(getClass().getResource("/v3/han_special_char_3.0.hwp").getFile());
+		assertTrue(wrapper.getSections(v3).isEmpty());
+		assertFalse(wrapper.extractSections(v3, new StringWriter(), 0));
+		StringWriter prefix = new StringWriter();
+		assertTrue(wrapper.extractPrefix(v3, 10, prefix));
+		assertEquals(10, prefix.toString().length());
+	}
+}
@@ -0,0 +1,65 @@
+package io.github.qwefgh90.jsearch.extractor.hwp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import io.github.qwefgh90.jsearch.ExtractionStoppedException;
+import io.github.qwefgh90.jsearch.JSearch;
+import io.github.qwefgh90.jsearch.algorithm.QS;
+import io.github.qwefgh90.jsearch.algorithm.QSWriter;
+import io.github.qwefgh90.jsearch.extractor.DocumentMetadata;
+
+public class TestHwpxExtractor {
+	@Test
+	public void testExtractText() throws IOException {
+		File xlsx = new File(getClass().getResource("/xlsx/1234.xlsx").getFile());
+		String text = HwpxTextExtractor.extract(new File(getClass().getResource("/hwpx/sample.hwpx").getFile()));
+		assertEquals("한글 문서 검색\n"
+				+ "first\tsecond & third\n"
+				+ "cell one\ncell two\nafter table\n"
+				+ "두번째 구역\n"
+				+ "line\nbreak\n"
+				+ "열한번째 구역\n", text);
+
+		// not a HWPX document
+		assertFalse(HwpxTextExtractor.extract(xlsx, new StringWriter()));
+	}
+
+	@Test
+	public void testJSearch() throws IOException {
+		File hwpx = new File(getClass().getResource("/hwpx/sample.hwpx").getFile());
+		assertEquals("application/hwp+zip", JSearch.getContentType(hwpx, hwpx.getName()).toString());
+		assertTrue(JSearch.extractContentsFromFile(hwpx).contains("두번째 구역"));
+		assertTrue(JSearch.isContainsKeywordFromFile(hwpx, "after table"));
+		assertFalse(JSearch.isContainsKeywordFromFile(hwpx, "not exist"));
+	}
+
+	@Test
+	public void testMetadata() throws IOException {
+		File hwpx = new File(getClass().getResource("/hwpx/sample.hwpx").getFile());
+		DocumentMetadata metadata = HwpxTextExtractor.extractMetadata(hwpx);
+		assertEquals("HWPX 샘플", metadata.getTitle());
+		assertEquals("qwefgh90", metadata.getAuthor());
+		assertEquals("hwpx", metadata.getKeywords());
+		assertEquals(1479603723000L, metadata.getCreated().getTime()); // 2016-11-20T01:02:03Z
+		assertNull(metadata.getSubject());
+
+		// not a HWPX document
+		assertNull(HwpxTextExtractor.extractMetadata(new File(getClass().getResource("/xlsx/1234.xlsx").getFile())));
+	}
+
+	@Test(expected = ExtractionStoppedException.class)
+	public void testStop() throws IOException {
+		QSWriter writer = new QSWriter(QS.compile("cell"), true);
+		HwpxTextExtractor.extract(new File(getClass().getResource("/hwpx/sample.hwpx").getFile()), writer);
+		writer.close();
+	}
+}
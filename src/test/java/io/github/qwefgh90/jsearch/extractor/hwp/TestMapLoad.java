@@ -102,4 +102,21 @@ public class TestMapLoad {
 		Assert.assertEquals(new String(new char[] { 0xf7fe, 0xf863, 0xf8e6 }),
 				map[(int) 0xfff8]);
 	}
+
+	/**
+	 * hnc2unicode.bin 은 hnc2unicode.rb 와 같아야 한다
+	 */
+	@Test
+	public void testPrecompiledTable() {
+		Assert.assertTrue(Hnc2String.precompiled);
+
+		char[] chars = new char[3];
+		for (int code = 0; code < 0xFFFF; code++) {
+			Assert.assertEquals(Integer.toHexString(code), map[code], Hnc2String.convert(code));
+			int length = Hnc2String.convert(code, chars, 0);
+			Assert.assertEquals(map[code] == null ? 0 : map[code].length(), length);
+			if (length > 0)
+				Assert.assertEquals(map[code], new String(chars, 0, length));
+		}
+	}
 }